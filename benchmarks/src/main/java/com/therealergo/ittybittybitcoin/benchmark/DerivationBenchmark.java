@@ -0,0 +1,82 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.therealergo.ittybittybitcoin.IttyBittyBitcoin;
+
+/** Benchmarks private key to public point conversion and the full private key to address pipeline, for compressed and uncompressed points. Keys are cycled through a fixed pseudorandom set so that no result can be cached. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DerivationBenchmark {
+	@Param({"true", "false"})
+	public boolean compressed;
+	
+	private IttyBittyBitcoin ibb;
+	private byte[][]         privateKeys;
+	private int              nextKey;
+	
+	@Setup
+	public void setup() {
+		ibb = new IttyBittyBitcoin();
+		Random random = new Random(8);
+		privateKeys = new byte[1024][32];
+		for (int i = 0; i<privateKeys.length; i++) {
+			random.nextBytes(privateKeys[i]);
+		}
+	}
+	
+	/** Returns the next private key of the fixed set. */
+	private byte[] nextPrivateKey() {
+		nextKey = (nextKey + 1) & (privateKeys.length - 1);
+		return privateKeys[nextKey];
+	}
+	
+	@Benchmark
+	public byte[] privateKeyToPublicPoint() {
+		return ibb.privateKeyToPublicPoint(nextPrivateKey(), compressed);
+	}
+	
+	@Benchmark
+	public byte[] privateKeyToAddress() {
+		return ibb.privateKeyToAddress(nextPrivateKey(), compressed);
+	}
+}
@@ -0,0 +1,73 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.therealergo.ittybittybitcoin.IttyBittyBitcoin;
+
+/** Benchmarks the hashing stages: the checksum of a 21-byte versioned public key, and the SHA-256 plus RIPEMD-160 hash of a compressed or uncompressed public point. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashBenchmark {
+	@Param({"true", "false"})
+	public boolean compressed;
+	
+	private IttyBittyBitcoin ibb;
+	private byte[]           versionedPublicKey;
+	private byte[]           publicPoint;
+	
+	@Setup
+	public void setup() {
+		ibb = new IttyBittyBitcoin();
+		publicPoint = ibb.privateKeyToPublicPoint(ibb.decodeHex("0C28FCA386C7A227600B2FE50B7CAE11EC86D3BF1FBE471BE89827E19D72AA1D"), compressed);
+		versionedPublicKey = new byte[21];
+		System.arraycopy(ibb.publicPointToPublicKey(publicPoint), 0, versionedPublicKey, 1, 20);
+	}
+	
+	@Benchmark
+	public byte[] checksum() {
+		return ibb.checksum(versionedPublicKey);
+	}
+	
+	@Benchmark
+	public byte[] publicPointToPublicKey() {
+		return ibb.publicPointToPublicKey(publicPoint);
+	}
+}
@@ -0,0 +1,53 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.therealergo.ittybittybitcoin.IttyBittyBitcoin;
+import com.therealergo.ittybittybitcoin.IttyBittyBitcoinCommandLine;
+
+/** Benchmarks the latency of the first result of a single 'ka' command in a fresh JVM, which is what every one-shot command line invocation pays. Each fork runs the command exactly once, so class loading, curve setup, and per-thread state creation are all measured, and nothing is warmed up beforehand. */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class StartupBenchmark {
+	@Benchmark
+	public byte[] firstPrivateKeyToAddress() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		IttyBittyBitcoinCommandLine.execute(new IttyBittyBitcoin(), new String[]{"ka", "01", "true"}, new PrintStream(output));
+		return output.toByteArray();
+	}
+}
@@ -0,0 +1,85 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.therealergo.ittybittybitcoin.IttyBittyBitcoin;
+import com.therealergo.ittybittybitcoin.IttyBittyBitcoinCandidateGenerator;
+import com.therealergo.ittybittybitcoin.IttyBittyBitcoinPrefixMatcher;
+
+/** Benchmarks the vanity search loop in keys per second for prefixes of several lengths. Each invocation generates, hashes, and matches one batch of candidates exactly as a vanity search worker does, confirming range hits against the base-58 address. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VanityBenchmark {
+	/** Number of candidates generated per batch, matching the vanity search workers. */
+	private static final int batchSize = 256;
+	
+	@Param({"1A", "1AbC", "1AbCdE"})
+	public String vanity;
+	
+	@Param({"true", "false"})
+	public boolean compressed;
+	
+	private IttyBittyBitcoin                   ibb;
+	private IttyBittyBitcoinPrefixMatcher      matcher;
+	private IttyBittyBitcoinCandidateGenerator generator;
+	
+	@Setup
+	public void setup() {
+		ibb = new IttyBittyBitcoin();
+		matcher = new IttyBittyBitcoinPrefixMatcher(ibb, vanity);
+		generator = new IttyBittyBitcoinCandidateGenerator(ibb.decodeHex("0C28FCA386C7A227600B2FE50B7CAE11EC86D3BF1FBE471BE89827E19D72AA1D"), batchSize);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(batchSize)
+	public int searchBatch() {
+		int hits = 0;
+		generator.nextBatch();
+		for (int i = 0; i<batchSize; i++) {
+			byte[] publicKey = ibb.publicPointToPublicKey(generator.getEncodedPoint(i, compressed));
+			if (matcher.matches(publicKey, 0) && matcher.matchesAddress(ibb.encodeBase58(ibb.publicKeyToAddress(publicKey)))) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+}
@@ -22,20 +22,25 @@
 
 package com.therealergo.ittybittybitcoin;
 
+import java.io.IOException;
 import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.Security;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
-import javax.xml.bind.DatatypeConverter;
-
-import org.bouncycastle.asn1.sec.SECNamedCurves;
 import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.crypto.digests.RIPEMD160Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
 import org.bouncycastle.crypto.params.ECDomainParameters;
-import org.bouncycastle.crypto.params.ECPublicKeyParameters;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.math.ec.ECPoint;
 import org.bouncycastle.util.Arrays;
 
@@ -43,50 +48,90 @@ public class IttyBittyBitcoin {
 	/** The installed version of IttyBittyBitcoin. */
 	public static final String version = "1.0BR";
 	
-	/** Array where every position's index is mapped to the base-58 encoded character representing that index. */
-	private static final char[] base58ToChar = new char[] {
-			'1', '2', '3', '4', '5', '6', '7', '8', '9', 
-			'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H',      'J', 'K', 'L', 'M', 'N',      'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 
-			'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k',      'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z'};
-	/** Array where every position's index is mapped to the base-58 value of the ASCII/UTF-8 character there, or -1 if the character is not valid in base-58 encoding. */
-	private static final byte[] charToBase58 = new byte[] {
-			  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1, 
-			  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1, 
-			  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1, 
-			  -1,   0,   1,   2,   3,   4,   5,   6,   7,   8,  -1,  -1,  -1,  -1,  -1,  -1, 
-			  -1,   9,  10,  11,  12,  13,  14,  15,  16,  -1,  17,  18,  19,  20,  21,  -1, 
-			  22,  23,  24,  25,  26,  27,  28,  29,  30,  31,  32,  -1,  -1,  -1,  -1,  -1, 
-			  -1,  33,  34,  35,  36,  37,  38,  39,  40,  41,  42,  43,  -1,  44,  45,  46, 
-			  47,  48,  49,  50,  51,  52,  53,  54,  55,  56,  57,  -1,  -1,  -1,  -1,  -1
-	};
-	
-	/** The MessageDigest instance used for SHA-256 hashing. */
-	private MessageDigest   messageDigestSHA256;
-	/** The RIPEMD160Digest instance used for RMD-160 hashing. */
-	private RIPEMD160Digest messageDigestRMD160;
+	/** Holder of the secp256k1 curve parameters, which the JVM initializes once, on the first call that needs them, so that commands which never touch the curve never pay for building it. Only Bouncy Castle's lightweight API is used, so no JCA provider is ever registered. */
+	private static final class Secp256k1 {
+		/** The domain instance holding the prespecified parameters to the secp256k1 curve. This is immutable, and shared by every instance. */
+		private static final ECDomainParameters domain;
+		
+		static {
+			// Create the Bouncy Castle curve and Domain instances used for secp256k1 cryptography
+			// The custom curve implementation uses Jacobian coordinates and specialized field arithmetic for secp256k1
+			X9ECParameters curve = CustomNamedCurves.getByName("secp256k1");
+			domain = new ECDomainParameters(curve.getCurve(), curve.getG(), curve.getN(), curve.getH());
+		}
+	}
 	
-	/** The Bouncy Castle instance representing the secp256k1 curve that Bitcoin uses to encrypt private keys. */
-	private X9ECParameters curve;
-	/** The domain instance holding the prespecified parameters to the secp256k1 curve. */
-	private ECDomainParameters domain;
+	/** Characters used to encode each 4-bit nibble in hexadecimal. */
+	private static final char[] hexChars = "0123456789ABCDEF".toCharArray();
 	
-	/** Constructor used to initialize the Bouncy Castle and Java Security instances used by IttyBittyBitcoin. */
-	public IttyBittyBitcoin() {
-		// Add Bouncy Castle's security provider once at startup
-		Security.addProvider(new BouncyCastleProvider());
+	/** The mutable hashing and encoding state used by one thread. Each thread gets its own, so that instances can be shared between threads without any locking. */
+	private static class ThreadState {
+		/** The RIPEMD160Digest instance used for RMD-160 hashing. */
+		private final RIPEMD160Digest        messageDigestRMD160;
+		/** The IttyBittyBitcoinBase58 instance used for base-58 encoding and decoding. */
+		private final IttyBittyBitcoinBase58 base58;
+		/** The IttyBittyBitcoinHash instance used for the fixed-length hashing of checksums, public keys, and addresses. */
+		private final IttyBittyBitcoinHash   hash;
 		
-		// Create the Digests used for RMD-160 and SHA-256 hashing
-		try {
-			messageDigestSHA256 = MessageDigest.getInstance("SHA-256");
-		} catch (NoSuchAlgorithmException e) {
-			System.err.println("Failed to find SHA-256 algorithm: Some functions may not work properly!");
-			e.printStackTrace();
+		/** Create the Digest used for RMD-160 hashing, the hash kernels, and the base-58 codec. */
+		private ThreadState() {
+			messageDigestRMD160 = new RIPEMD160Digest();
+			base58 = new IttyBittyBitcoinBase58();
+			hash = new IttyBittyBitcoinHash();
 		}
-		messageDigestRMD160 = new RIPEMD160Digest();
-		
-		// Create the Bouncy Castle curve and Domain instances used for secp256k1 cryptography
-		curve = SECNamedCurves.getByName("secp256k1");
-		domain = new ECDomainParameters(curve.getCurve(), curve.getG(), curve.getN(), curve.getH());
+	}
+	
+	/** The ThreadState of each thread that has used IttyBittyBitcoin, shared by every instance. This is an anonymous subclass rather than ThreadLocal.withInitial(...), so that a one-shot command does not pay for bootstrapping a lambda. */
+	private static final ThreadLocal<ThreadState> threadState = new ThreadLocal<ThreadState>() {
+		@Override
+		protected ThreadState initialValue() {
+			return new ThreadState();
+		}
+	};
+	
+	/** Constructor used to initialize an IttyBittyBitcoin instance. All curve state is shared and all hashing state is kept per-thread, so instances are cheap to create and safe to share between threads. */
+	public IttyBittyBitcoin() {
+	}
+	
+	/** The fixed-base table used to multiply the generator point, or null if generic scalar multiplication is used. This is shared by every instance. */
+	private static volatile IttyBittyBitcoinFixedBaseTable fixedBaseTable;
+	/** The cache consulted by the derivation methods, or null if every derivation is computed from scratch. This is shared by every instance. */
+	private static volatile IttyBittyBitcoinDerivationCache derivationCache;
+	
+	/** Returns the base-58 codec of the calling thread, which must not be used by any other thread. */
+	static IttyBittyBitcoinBase58 getThreadBase58() {
+		return threadState.get().base58;
+	}
+	
+	/** Returns the domain instance holding the prespecified parameters to the secp256k1 curve. */
+	static ECDomainParameters getSharedDomain() {
+		return Secp256k1.domain;
+	}
+	
+	/** Use the given precomputed table, shared by every instance, to multiply the generator point whenever a private key is converted to a public point. Passing null switches back to generic scalar multiplication. */
+	public static void useFixedBaseTable(IttyBittyBitcoinFixedBaseTable table) {
+		fixedBaseTable = table;
+	}
+	
+	/** Returns the fixed-base table currently used to multiply the generator point, or null if generic scalar multiplication is used. */
+	public static IttyBittyBitcoinFixedBaseTable getFixedBaseTable() {
+		return fixedBaseTable;
+	}
+	
+	/** Use the given cache, shared by every instance, in front of privateKeyToPublicPoint(...), privateKeyToPublicKey(...), privateKeyToAddress(...), and publicPointToAddress(...). Passing null switches back to computing every derivation from scratch. */
+	public static void useDerivationCache(IttyBittyBitcoinDerivationCache cache) {
+		derivationCache = cache;
+	}
+	
+	/** Returns the cache currently used by the derivation methods, or null if every derivation is computed from scratch. */
+	public static IttyBittyBitcoinDerivationCache getDerivationCache() {
+		return derivationCache;
+	}
+	
+	/** Multiply the generator point by the given private key, using the fixed-base table if one is in use. */
+	static ECPoint multiplyGenerator(BigInteger privateKey) {
+		IttyBittyBitcoinFixedBaseTable table = fixedBaseTable;
+		return table != null ? table.multiply(privateKey) : Secp256k1.domain.getG().multiply(privateKey);
 	}
 	
 	/** Test if the given String 'a' matches String 'b,' returning a human readable test result with String name 't.' */
@@ -98,35 +143,8 @@ public class IttyBittyBitcoin {
 		}
 	}
 	
-	/** Perform a series of tests to check that all IttyBittyBitcoin functions are working as intended. Test log is returned as a String. */
-	public String performTests() {
-		String results = "";
-		results = results + performTest(encodeHex(decodeHex("000000")), "000000", "Hexadecimal encode/decode");
-		results = results + performTest(encodeBase58(decodeBase58("1111111111111111111114oLvT2")), "1111111111111111111114oLvT2", "Base-58 encode/decode");
-		results = results + performTest(encodeHex(decodeBase58("123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz")), "000111D38E5FC9071FFCD20B4A763CC9AE4F252BB4E48FD66A835E252ADA93FF480D6DD43DC62A641155A5", "Hex<->Base-58 re-encode, leading 0's/1's");
-		results = results + performTest(encodeBase58(decodeHex("000111D38E5FC9071FFCD20B4A763CC9AE4F252BB4E48FD66A835E252ADA93FF480D6DD43DC62A641155A5")), "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz", "Hex<->Base-58 re-encode, leading 0's/1's");
-		results = results + performTest(encodeHex(checksum(decodeHex("aa"))), "E51600D4", "Checksum computation");
-		results = results + performTest(encodeHex   (                  (                      (privateKeyToPublicPoint(decodeHex("01"), false)))), "0479BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798483ADA7726A3C4655DA4FBFC0E1108A8FD17B448A68554199C47D08FFB10D4B8", "Public point computation");
-		results = results + performTest(encodeHex(publicPointToPublicKey(decodeBase58("11111111111111111111LDo1Uoe"))), "59EC04C8998D69E15E3E9386A8FB6456C9F7892B", "Public key computation");
-		results = results + performTest(encodeHex   (                  (publicPointToPublicKey(privateKeyToPublicPoint(decodeHex("01"), false)))), "91B24BF9F5288532960AC687ABB035127B1D28A5", "Public key computation");
-		results = results + performTest(encodeBase58(publicKeyToAddress(decodeHex("0000000000000000000000000000000000000000"))), "1111111111111111111114oLvT2", "Address computation");
-		results = results + performTest(encodeBase58(publicKeyToAddress(publicPointToPublicKey(privateKeyToPublicPoint(decodeHex("01"), false)))), "1EHNa6Q4Jz2uvNExL497mE43ikXhwF6kZm", "Address computation");
-		results = results + performTest(encodeBase58(publicKeyToAddress(publicPointToPublicKey(privateKeyToPublicPoint(findVanityAddress("1B", true), true)))).substring(0, 2), "1B", "Vanity address search");
-		return results;
-	}
-
-	/** Convert the given unsigned base-2 number, stored as an array of bytes, into a hexadecimal string. Any 0-padding on the left of the hexadecimal string is preserved. */
-	public String encodeHex(byte[] value) {
-		return DatatypeConverter.printHexBinary(value);
-	}
-	
-	/** Convert the given hexadecimal string to an unsigned base-2 number stored as an array of bytes. Any 0-padding on the left of the hexadecimal string is preserved. */
-	public byte[] decodeHex(String hexString) {
-		return DatatypeConverter.parseHexBinary(hexString);
-	}
-	
-	/** Converts the given value, an unsigned base-2 array of bytes, to a base-58 value. Any 1-padding on the left of the base-58 string is preserved. */
-	public String encodeBase58(byte[] value) {
+	/** Reference BigInteger implementation of encodeBase58(...), kept so that performTests() can compare IttyBittyBitcoinBase58 against it. */
+	private String encodeBase58BigInteger(byte[] value) {
 		// Convert value to two's complement for the BigInteger constructor, by appending a sign byte of 0x00
 		byte[] valueIn = new byte[value.length + 1];
 		valueIn[0] = 0;
@@ -138,7 +156,7 @@ public class IttyBittyBitcoin {
 		BigInteger integerValue = new BigInteger(valueIn);
 		while (integerValue.compareTo(BigInteger.ZERO) != 0) {
 			int rem = integerValue.remainder(new BigInteger(new byte[]{58})).byteValue();
-			ret = base58ToChar[rem] + ret;
+			ret = IttyBittyBitcoinBase58.base58ToChar[rem] + ret;
 			integerValue = integerValue.divide(new BigInteger(new byte[]{58}));
 		}
 		
@@ -149,15 +167,15 @@ public class IttyBittyBitcoin {
 		return ret;
 	}
 	
-	/** Converts the given base-58 value to a an unsigned base-2 array of bytes. Any 1-padding on the left of the base-58 string is preserved. */
-	public byte[] decodeBase58(String base58String) {
+	/** Reference BigInteger implementation of decodeBase58(...), kept so that performTests() can compare IttyBittyBitcoinBase58 against it. */
+	private byte[] decodeBase58BigInteger(String base58String) {
 		BigInteger integerValue = BigInteger.ZERO;
 		for (int i = 0; i<base58String.length(); i++) {
 			int characterAsciiValue = (int)base58String.charAt(i);
 			if (characterAsciiValue>127) {
 				throw new RuntimeException("Invalid character for Base-58 encoding!");
 			}
-			byte characterBase58Value = charToBase58[characterAsciiValue];
+			byte characterBase58Value = IttyBittyBitcoinBase58.charToBase58[characterAsciiValue];
 			if (characterBase58Value<0) {
 				throw new RuntimeException("Invalid character for Base-58 encoding!");
 			}
@@ -184,28 +202,803 @@ public class IttyBittyBitcoin {
 		return finalValue;
 	}
 	
+	/** Count how many of a fixed set of pseudorandom values encodeBase58(...) or decodeBase58(...) disagree with the BigInteger implementations about, returning the count as a String. */
+	private String testBase58() {
+		Random random = new Random(58);
+		int mismatches = 0;
+		for (int i = 0; i<4096; i++) {
+			byte[] value = new byte[random.nextInt(48)];
+			random.nextBytes(value);
+			
+			// Force some leading 0x00 bytes, so that leading 1's are also exercised
+			for (int j = 0; j<value.length && j<(i&7); j++) {
+				value[j] = 0;
+			}
+			String valueBase58 = encodeBase58BigInteger(value);
+			if (!encodeBase58(value).equals(valueBase58) || !Arrays.areEqual(decodeBase58(valueBase58), decodeBase58BigInteger(valueBase58))) {
+				mismatches++;
+			}
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Compute the SHA-256 hash of the given value with Bouncy Castle's SHA256Digest, which shares no code with the IttyBittyBitcoinHash kernels behind hashSHA256(...) and so serves as an independent reference for testing them. */
+	private static byte[] referenceSHA256(byte[] value) {
+		SHA256Digest digest = new SHA256Digest();
+		digest.update(value, 0, value.length);
+		byte[] hash = new byte[digest.getDigestSize()];
+		digest.doFinal(hash, 0);
+		return hash;
+	}
+	
+	/** Count how many of a fixed set of pseudorandom values the IttyBittyBitcoinHash kernels disagree with the SHA256Digest and RIPEMD160Digest implementations about, returning the count as a String. Every input length from 0 to 199 bytes is covered, which includes the 21, 32, 33, and 65-byte lengths used on the hot path and every padding boundary. */
+	private String testHashKernels() {
+		Random random = new Random(160);
+		IttyBittyBitcoinHash hash = new IttyBittyBitcoinHash();
+		int mismatches = 0;
+		for (int i = 0; i<800; i++) {
+			byte[] value = new byte[i % 200];
+			random.nextBytes(value);
+			
+			// Hash at an offset into a larger array, so that offsets and neighbouring bytes are exercised too
+			int offset = random.nextInt(8);
+			byte[] input = new byte[offset + value.length + 8];
+			random.nextBytes(input);
+			System.arraycopy(value, 0, input, offset, value.length);
+			byte[] out = new byte[offset + 32];
+			
+			hash.sha256(input, offset, value.length, out, offset);
+			byte[] expected = referenceSHA256(value);
+			mismatches += Arrays.areEqual(java.util.Arrays.copyOfRange(out, offset, offset + 32), expected) ? 0 : 1;
+			
+			hash.doubleSha256(input, offset, value.length, out, offset);
+			expected = referenceSHA256(expected);
+			mismatches += Arrays.areEqual(java.util.Arrays.copyOfRange(out, offset, offset + 32), expected) ? 0 : 1;
+			
+			hash.checksum(input, offset, value.length, out, offset);
+			mismatches += Arrays.areEqual(java.util.Arrays.copyOfRange(out, offset, offset + 4), java.util.Arrays.copyOf(expected, 4)) ? 0 : 1;
+			
+			hash.hash160(input, offset, value.length, out, offset);
+			expected = hashRMD160(referenceSHA256(value));
+			mismatches += Arrays.areEqual(java.util.Arrays.copyOfRange(out, offset, offset + 20), expected) ? 0 : 1;
+			
+			if (value.length >= 32) {
+				hash.ripemd160Of32(input, offset, out, offset);
+				expected = hashRMD160(java.util.Arrays.copyOf(value, 32));
+				mismatches += Arrays.areEqual(java.util.Arrays.copyOfRange(out, offset, offset + 20), expected) ? 0 : 1;
+			}
+			if (value.length >= 20) {
+				byte[] versioned = new byte[21];
+				System.arraycopy(value, 0, versioned, 1, 20);
+				expected = Arrays.concatenate(versioned, java.util.Arrays.copyOf(referenceSHA256(referenceSHA256(versioned)), 4));
+				hash.address(input, offset, out, 0);
+				mismatches += Arrays.areEqual(java.util.Arrays.copyOf(out, 25), expected) ? 0 : 1;
+			}
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Count how many variant public points encoded by an IttyBittyBitcoinCandidateGenerator, in either form, differ from those computed from their adjusted private keys by generic scalar multiplication, returning the count as a String. */
+	private String testCandidateVariants() {
+		int mismatches = 0;
+		IttyBittyBitcoinCandidateGenerator generator = new IttyBittyBitcoinCandidateGenerator(decodeHex("0C28FCA386C7A227600B2FE50B7CAE11EC86D3BF1FBE471BE89827E19D72AA1D"), 3);
+		byte[][] encodedPoints = new byte[2 * IttyBittyBitcoinCandidateGenerator.variantCount][];
+		for (int batch = 0; batch<2; batch++) {
+			generator.nextBatch();
+			for (int i = 0; i<generator.getBatchSize(); i++) {
+				generator.getEncodedVariants(i, encodedPoints, 0);
+				for (int v = 0; v<IttyBittyBitcoinCandidateGenerator.variantCount; v++) {
+					byte[] privateKey = generator.getVariantPrivateKey(i, v);
+					mismatches += Arrays.areEqual(encodedPoints[2 * v    ], privateKeyToPublicPoint(privateKey, true )) ? 0 : 1;
+					mismatches += Arrays.areEqual(encodedPoints[2 * v + 1], privateKeyToPublicPoint(privateKey, false)) ? 0 : 1;
+				}
+			}
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Count how many keysets minted by an IttyBittyBitcoinKeyGenerator have invalid or repeated private keys or wrong addresses, or were minted more or fewer times than requested, along with how many curve order edge cases are misjudged, returning the count as a String. */
+	private String testKeyGenerator() {
+		int mismatches = 0;
+		byte[] n = IttyBittyBitcoinCandidateGenerator.toPrivateKeyBytes(getSharedDomain().getN());
+		byte[] nMinusOne = IttyBittyBitcoinCandidateGenerator.toPrivateKeyBytes(getSharedDomain().getN().subtract(BigInteger.ONE));
+		mismatches += IttyBittyBitcoinKeyGenerator.isValidPrivateKey(new byte[32], 0) ? 1 : 0;
+		mismatches += IttyBittyBitcoinKeyGenerator.isValidPrivateKey(n        , 0) ? 1 : 0;
+		mismatches += IttyBittyBitcoinKeyGenerator.isValidPrivateKey(nMinusOne, 0) ? 0 : 1;
+		
+		HashSet<String> privateKeys = new HashSet<String>();
+		int[] mintedAndBad = new int[2];
+		try {
+			new IttyBittyBitcoinKeyGenerator(this, 3, 100).generate(1234, true, (keys, addresses, count) -> {
+				for (int i = 0; i<count; i++) {
+					byte[] privateKey = java.util.Arrays.copyOfRange(keys, 32 * i, 32 * i + 32);
+					if (!IttyBittyBitcoinKeyGenerator.isValidPrivateKey(privateKey, 0) || !privateKeys.add(encodeHex(privateKey)) ||
+						!Arrays.areEqual(java.util.Arrays.copyOfRange(addresses, 25 * i, 25 * i + 25), privateKeyToAddress(privateKey, true))) {
+						mintedAndBad[1]++;
+					}
+				}
+				mintedAndBad[0] += count;
+			});
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted!", e);
+		}
+		return Integer.toString(mismatches + mintedAndBad[1] + Math.abs(mintedAndBad[0] - 1234));
+	}
+	
+	/** Count how many public points computed with small fixed-base tables, both freshly built and saved then loaded again, differ from those computed by generic scalar multiplication, plus one for every saved table that still loads after a single point in its middle is changed, returning the count as a String. */
+	private String testFixedBaseTable() {
+		Random random = new Random(7);
+		int mismatches = 0;
+		for (int windowBits = 3; windowBits<=5; windowBits++) {
+			IttyBittyBitcoinFixedBaseTable table = IttyBittyBitcoinFixedBaseTable.build(windowBits);
+			IttyBittyBitcoinFixedBaseTable loadedTable;
+			try {
+				Path tablePath = Files.createTempFile("ibb", ".table");
+				try {
+					table.save(tablePath);
+					loadedTable = IttyBittyBitcoinFixedBaseTable.load(tablePath);
+					
+					// Flip one bit of a coordinate in the middle of the table, which the digest must catch
+					byte[] tableBytes = Files.readAllBytes(tablePath);
+					tableBytes[tableBytes.length / 2] ^= 1;
+					Files.write(tablePath, tableBytes);
+					try {
+						IttyBittyBitcoinFixedBaseTable.load(tablePath);
+						mismatches++;
+					} catch (RuntimeException e) {
+						// Expected
+					}
+				} finally {
+					Files.delete(tablePath);
+				}
+			} catch (IOException e) {
+				return e.toString();
+			}
+			for (int i = 0; i<32; i++) {
+				BigInteger privateKey = new BigInteger(256, random);
+				ECPoint expected = getSharedDomain().getG().multiply(privateKey);
+				if (!table.multiply(privateKey).equals(expected) || !loadedTable.multiply(privateKey).equals(expected)) {
+					mismatches++;
+				}
+			}
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Count how many addresses derived by IttyBittyBitcoinBatch, from both arrays and streams, differ from those derived one at a time, returning the count as a String. */
+	private String testBatch() {
+		Random random = new Random(6);
+		byte[][] privateKeys = new byte[300][32];
+		for (int i = 0; i<privateKeys.length; i++) {
+			random.nextBytes(privateKeys[i]);
+		}
+		
+		IttyBittyBitcoinBatch batch = new IttyBittyBitcoinBatch(this, ForkJoinPool.commonPool(), 16);
+		byte[][] addresses = batch.privateKeysToAddresses(privateKeys, true);
+		Object[] streamedAddresses = batch.privateKeysToAddresses(java.util.Arrays.stream(privateKeys), true).toArray();
+		int mismatches = streamedAddresses.length == privateKeys.length ? 0 : 1;
+		for (int i = 0; i<privateKeys.length && i<streamedAddresses.length; i++) {
+			byte[] address = privateKeyToAddress(privateKeys[i], true);
+			if (!Arrays.areEqual(addresses[i], address) || !Arrays.areEqual((byte[])streamedAddresses[i], address)) {
+				mismatches++;
+			}
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Build watch lists, with and without a Bloom filter, from a mix of addresses and hexadecimal public keys, and count how many watched keys they miss or unwatched keys they report, returning the count as a String. */
+	private String testWatchList() {
+		Random random = new Random(11);
+		byte[][] privateKeys = new byte[256][32];
+		byte[][] publicKeys  = new byte[privateKeys.length][];
+		for (int i = 0; i<privateKeys.length; i++) {
+			random.nextBytes(privateKeys[i]);
+			publicKeys[i] = privateKeyToPublicKey(privateKeys[i], true);
+		}
+		
+		// Watch every even key, written as an address or public key, plus a duplicate, an all-zero key, and an address of another type
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i<privateKeys.length; i += 2) {
+			input.append(i % 4 == 0 ? encodeBase58(publicKeyToAddress(publicKeys[i])) : encodeHex(publicKeys[i])).append('\n');
+		}
+		input.append(encodeBase58(publicKeyToAddress(publicKeys[0]))).append("\n\n");
+		input.append("0000000000000000000000000000000000000000\n");
+		byte[] scriptAddress = publicKeyToAddress(publicKeys[1]);
+		scriptAddress[0] = 5;
+		System.arraycopy(checksum(java.util.Arrays.copyOf(scriptAddress, 21)), 0, scriptAddress, 21, 4);
+		input.append(encodeBase58(scriptAddress)).append('\n');
+		
+		int mismatches = 0;
+		try {
+			Path inputPath = Files.createTempFile("ibb", ".txt");
+			Path watchPath = Files.createTempFile("ibb", ".watch");
+			Path keysPath  = Files.createTempFile("ibb", ".keys");
+			Path foundPath = Files.createTempFile("ibb", ".found");
+			try {
+				Files.write(inputPath, input.toString().getBytes("US-ASCII"));
+				StringBuilder keys = new StringBuilder();
+				for (int i = 0; i<privateKeys.length; i++) {
+					keys.append(encodeHex(privateKeys[i])).append('\n');
+				}
+				Files.write(keysPath, keys.toString().getBytes("US-ASCII"));
+				for (int bloomBitsPerKey = 0; bloomBitsPerKey<=10; bloomBitsPerKey += 10) {
+					IttyBittyBitcoinWatchList built  = IttyBittyBitcoinWatchList.build(this, inputPath, watchPath, bloomBitsPerKey);
+					IttyBittyBitcoinWatchList loaded = IttyBittyBitcoinWatchList.load(watchPath);
+					mismatches += built.getEntryCount() == privateKeys.length / 2 + 1 && loaded.getEntryCount() == built.getEntryCount() ? 0 : 1;
+					for (int i = 0; i<privateKeys.length; i++) {
+						if (built.contains(publicKeys[i], 0) != (i % 2 == 0) || loaded.contains(publicKeys[i], 0) != (i % 2 == 0)) {
+							mismatches++;
+						}
+					}
+					mismatches += loaded.contains(new byte[20], 0) ? 0 : 1;
+					
+					// Batch derivation should report exactly the watched keys
+					long found = new IttyBittyBitcoinBatch(this, ForkJoinPool.commonPool(), 16).privateKeysInWatchList(keysPath, foundPath, true, loaded);
+					mismatches += found == privateKeys.length / 2 && Files.readAllLines(foundPath).size() == found ? 0 : 1;
+					
+					// The key generator should report exactly the minted keysets whose addresses are on the list
+					long[] watched = new long[2];
+					new IttyBittyBitcoinKeyGenerator(this, 2, 64).generate(1000, true, (k, addresses, count) -> {
+						for (int i = 0; i<count; i++) {
+							watched[0] += loaded.contains(addresses, 25 * i + 1) ? 1 : 0;
+						}
+					}, loaded, (privateKey, compressed) -> {
+						watched[1] += loaded.contains(privateKeyToPublicKey(privateKey, compressed), 0) ? 1 : 0;
+					});
+					mismatches += watched[0] == watched[1] ? 0 : 1;
+				}
+			} finally {
+				Files.delete(inputPath);
+				Files.delete(watchPath);
+				Files.delete(keysPath);
+				Files.delete(foundPath);
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted!", e);
+		} catch (IOException e) {
+			return e.toString();
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Append keysets to a keyset store across several flushes, reopen it after a torn write, after losing its index, and after its store file is replaced under an old index, export and import it as text, and count how many keysets cannot be found again or come back wrong, returning the count as a String. */
+	private String testKeysetStore() {
+		Random random = new Random(53);
+		byte[][] privateKeys = new byte[700][32];
+		for (int i = 0; i<privateKeys.length; i++) {
+			random.nextBytes(privateKeys[i]);
+		}
+		
+		int mismatches = 0;
+		try {
+			Path storePath  = Files.createTempFile("ibb", ".keysets");
+			Path indexPath  = Paths.get(storePath + ".index");
+			Path textPath   = Files.createTempFile("ibb", ".txt");
+			Path importPath = Files.createTempFile("ibb", ".keysets");
+			Path importIndexPath = Paths.get(importPath + ".index");
+			Files.delete(storePath);
+			Files.delete(importPath);
+			try {
+				// Appending past 512 keysets grows the index from its initial 1024 slots
+				try (IttyBittyBitcoinKeysetStore store = new IttyBittyBitcoinKeysetStore(storePath)) {
+					for (int i = 0; i<privateKeys.length; i++) {
+						store.append(this, privateKeys[i], i % 3 != 0);
+						if (i % 250 == 249) {
+							store.flush();
+						}
+					}
+					store.flush();
+					for (int i = 0; i<privateKeys.length; i += 7) {
+						mismatches += store.find(privateKeyToPublicKey(privateKeys[i], i % 3 != 0), 0) == i ? 0 : 1;
+					}
+					mismatches += Files.exists(Paths.get(indexPath + ".tmp")) ? 1 : 0;
+				}
+				
+				// A partly written record left by a crash is discarded, and a lost index is rebuilt
+				Files.write(storePath, new byte[10], StandardOpenOption.APPEND);
+				Files.delete(indexPath);
+				try (IttyBittyBitcoinKeysetStore store = new IttyBittyBitcoinKeysetStore(storePath)) {
+					mismatches += store.getRecordCount() == privateKeys.length ? 0 : 1;
+					for (int i = 0; i<privateKeys.length; i++) {
+						long record = store.findAddress(this, encodeBase58(privateKeyToAddress(privateKeys[i], i % 3 != 0)));
+						if (record != i || !Arrays.areEqual(store.getPrivateKey(record), privateKeys[i]) || store.isCompressed(record) != (i % 3 != 0)) {
+							mismatches++;
+						}
+					}
+					mismatches += store.find(privateKeyToPublicKey(privateKeys[0], true), 0) == -1 ? 0 : 1;
+					mismatches += store.exportText(this, textPath) == privateKeys.length ? 0 : 1;
+				}
+				try (IttyBittyBitcoinKeysetStore imported = new IttyBittyBitcoinKeysetStore(importPath)) {
+					mismatches += imported.importText(this, textPath) == privateKeys.length ? 0 : 1;
+					for (int i = 0; i<privateKeys.length; i += 7) {
+						long record = imported.find(privateKeyToPublicKey(privateKeys[i], i % 3 != 0), 0);
+						mismatches += record == i && imported.isCompressed(record) == (i % 3 != 0) ? 0 : 1;
+					}
+				}
+				
+				// An index left behind by a store file that has since been replaced is rebuilt, rather than trusted
+				Files.delete(importPath);
+				Files.delete(importIndexPath);
+				try (IttyBittyBitcoinKeysetStore replaced = new IttyBittyBitcoinKeysetStore(importPath)) {
+					for (int i = 0; i<100; i++) {
+						replaced.append(this, privateKeys[i], true);
+					}
+				}
+				byte[] staleIndex = Files.readAllBytes(importIndexPath);
+				Files.delete(importPath);
+				try (IttyBittyBitcoinKeysetStore replaced = new IttyBittyBitcoinKeysetStore(importPath)) {
+					for (int i = 100; i<300; i++) {
+						replaced.append(this, privateKeys[i], true);
+					}
+				}
+				Files.write(importIndexPath, staleIndex);
+				try (IttyBittyBitcoinKeysetStore replaced = new IttyBittyBitcoinKeysetStore(importPath)) {
+					mismatches += replaced.find(privateKeyToPublicKey(privateKeys[  0], true), 0) == -1 ? 0 : 1;
+					mismatches += replaced.find(privateKeyToPublicKey(privateKeys[150], true), 0) == 50 ? 0 : 1;
+				}
+			} finally {
+				Files.deleteIfExists(storePath);
+				Files.deleteIfExists(indexPath);
+				Files.deleteIfExists(textPath);
+				Files.deleteIfExists(importPath);
+				Files.deleteIfExists(importIndexPath);
+			}
+		} catch (IOException e) {
+			return e.toString();
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Derive keysets through a large and a small derivation cache, and through a batch and a key generator that must bypass the cache, and count how many results differ from uncached derivation or how many counters come out wrong, returning the count as a String. */
+	private String testDerivationCache() {
+		Random random = new Random(19);
+		byte[][] privateKeys = new byte[20][32];
+		String[] expected = new String[privateKeys.length];
+		for (int i = 0; i<privateKeys.length; i++) {
+			random.nextBytes(privateKeys[i]);
+			expected[i] = encodeHex(privateKeyToAddress(privateKeys[i], i % 2 == 0));
+		}
+		
+		int mismatches = 0;
+		IttyBittyBitcoinDerivationCache previous = getDerivationCache();
+		try {
+			// Each key misses once by private key and once by public point, then hits every other time
+			IttyBittyBitcoinDerivationCache cache = new IttyBittyBitcoinDerivationCache(1024);
+			useDerivationCache(cache);
+			for (int pass = 0; pass<2; pass++) {
+				for (int i = 0; i<privateKeys.length; i++) {
+					byte[] address = privateKeyToAddress(privateKeys[i], i % 2 == 0);
+					mismatches += encodeHex(address).equals(expected[i]) ? 0 : 1;
+					address[0] ^= 1;
+					mismatches += encodeHex(publicKeyToAddress(privateKeyToPublicKey(privateKeys[i], i % 2 == 0))).equals(expected[i]) ? 0 : 1;
+					mismatches += encodeHex(publicPointToAddress(privateKeyToPublicPoint(privateKeys[i], i % 2 == 0))).equals(expected[i]) ? 0 : 1;
+				}
+			}
+			mismatches += cache.getMisses() == 2 * privateKeys.length && cache.getHits() == 6 * privateKeys.length ? 0 : 1;
+			mismatches += cache.getEvictions() == 0 && cache.getSize() == 2 * privateKeys.length ? 0 : 1;
+			
+			// A cache smaller than the working set evicts, but still returns the right results
+			cache = new IttyBittyBitcoinDerivationCache(4);
+			useDerivationCache(cache);
+			for (int i = 0; i<privateKeys.length; i++) {
+				mismatches += encodeHex(privateKeyToAddress(privateKeys[i], i % 2 == 0)).equals(expected[i]) ? 0 : 1;
+			}
+			mismatches += cache.getSize() <= 4 && cache.getEvictions() + cache.getSize() == privateKeys.length ? 0 : 1;
+			cache.clear();
+			mismatches += cache.getSize() == 0 ? 0 : 1;
+			
+			// Batches and minted keysets bypass the cache entirely, so they neither fill it nor count as misses
+			byte[][] batchAddresses = new IttyBittyBitcoinBatch(this, ForkJoinPool.commonPool(), 4).privateKeysToAddresses(privateKeys, true);
+			for (int i = 0; i<privateKeys.length; i += 2) {
+				mismatches += encodeHex(batchAddresses[i]).equals(expected[i]) ? 0 : 1;
+			}
+			try {
+				new IttyBittyBitcoinKeyGenerator(this, 2, 8).generate(40, true, (mintedKeys, mintedAddresses, count) -> {});
+			} catch (InterruptedException e) {
+				throw new RuntimeException("Interrupted!", e);
+			}
+			mismatches += cache.getSize() == 0 && cache.getMisses() == privateKeys.length ? 0 : 1;
+		} finally {
+			useDerivationCache(previous);
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Run a multi-pattern vanity search whose result listener throws, and return the type of the failure that await() reports and whether the search then counts as finished, as a String. */
+	private String testMultiVanitySearchFailure() {
+		IttyBittyBitcoinMultiVanitySearch search = new IttyBittyBitcoinMultiVanitySearch(java.util.Arrays.asList("1"), true, 2, false, (s, vanity, privateKey, address) -> {
+			throw new IllegalStateException("Result listener failed.");
+		}, null, 0).start();
+		try {
+			return search.await(60, TimeUnit.SECONDS) ? "No failure reported" : "Timed out";
+		} catch (InterruptedException e) { search.cancel(); throw new RuntimeException("Interrupted!", e); } catch (ExecutionException e) {
+			return e.getCause().getClass().getSimpleName() + " " + search.isDone();
+		}
+	}
+	
+	/** Start a daemon on a free local port, requiring 'token' with each request unless it is null, send it several pipelined requests over one connection, including commands the daemon must refuse, and count how many responses are missing or wrong, returning the count as a String. */
+	private String testDaemon(String token) {
+		String   prefix    = token == null ? "" : token + " ";
+		String[] requests  = new String[]{prefix + "ka 01 false", prefix + "checksum aa", prefix + "notACommand", prefix + "ka zz true", prefix + "bT daemonTable.bin 8", prefix + "gR true 2", "wrongToken ka 01 false"};
+		String[] expected  = new String[]{"OK 1 Address: 1EHNa6Q4Jz2uvNExL497mE43ikXhwF6kZm", "OK 1 Computed checksum: E51600D4", "ERROR 1 ", "ERROR 1 ", "ERROR 1 Command not allowed", "ERROR 1 Command not allowed", token == null ? "ERROR 1 Command not allowed" : "ERROR 1 Missing or wrong token"};
+		String[] responses = new String[requests.length];
+		try (IttyBittyBitcoinDaemon daemon = new IttyBittyBitcoinDaemon(this, 0, 2, token)) {
+			Thread server = new Thread(() -> {
+				try {
+					daemon.run();
+				} catch (IOException e) {
+					// Reported as missing responses below
+				}
+			});
+			server.setDaemon(true);
+			server.start();
+			try (java.net.Socket socket = new java.net.Socket(java.net.InetAddress.getLoopbackAddress(), daemon.getPort())) {
+				// Send every request before reading any response
+				java.io.Writer writer = new java.io.OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+				for (int i = 0; i<requests.length; i++) {
+					writer.write(i + " " + requests[i] + "\n");
+				}
+				writer.flush();
+				
+				// Responses may arrive in any order, so they are matched up by request id
+				java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.InputStreamReader(socket.getInputStream(), "UTF-8"));
+				for (int i = 0; i<requests.length; i++) {
+					String[] header = reader.readLine().split(" ");
+					String response = header[1] + " " + header[2] + " ";
+					for (int j = 0; j<Integer.parseInt(header[2]); j++) {
+						response = response + reader.readLine();
+					}
+					responses[Integer.parseInt(header[0])] = response;
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			return e.toString();
+		}
+		int mismatches = 0;
+		for (int i = 0; i<requests.length; i++) {
+			if (responses[i] == null || !(expected[i].startsWith("ERROR") ? responses[i].startsWith(expected[i]) : responses[i].equals(expected[i]))) {
+				mismatches++;
+			}
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Run a small partitioned search in a temporary directory, then reopen it and check its partitions, claims, checkpoints, hits, and the failure of a worker whose checkpoint is corrupt, returning the number of problems found as a String. */
+	private String testPartitionedSearch() {
+		int problems = 0;
+		try {
+			Path directory = Files.createTempDirectory("ibb");
+			try {
+				IttyBittyBitcoinPartitionedSearch search = IttyBittyBitcoinPartitionedSearch.create(this, directory, "1B", true);
+				byte[] privateKey = search.runWorker("a", 1, 1000);
+				problems += privateKey != null && encodeBase58(privateKeyToAddress(privateKey, true)).startsWith("1B") ? 0 : 1;
+				
+				// A reopened search must derive the same partitions, resume its workers' own claims, and see the recorded hit
+				IttyBittyBitcoinPartitionedSearch reopened = IttyBittyBitcoinPartitionedSearch.open(this, directory);
+				problems += Arrays.areEqual(search.getPartitionStart(3), reopened.getPartitionStart(3)) ? 0 : 1;
+				problems += new BigInteger(1, reopened.getPartitionStart(1)).subtract(new BigInteger(1, reopened.getPartitionStart(0))).mod(getSharedDomain().getN()).equals(BigInteger.ONE.shiftLeft(192)) ? 0 : 1;
+				problems += reopened.claimPartition("b") == 1 && reopened.claimPartition("a") == 0 ? 0 : 1;
+				problems += reopened.getCheckpoint(0) > 0 && reopened.getCheckpoint(1) == 0 ? 0 : 1;
+				problems += reopened.getHits().size() == 1 && reopened.getHits().get(0).equals("0 " + encodeHex(privateKey) + " " + encodeBase58(privateKeyToAddress(privateKey, true))) ? 0 : 1;
+				
+				// A partition that fails must fail its worker, rather than looking like a hit found by another worker
+				Files.write(directory.resolve("partition-2.checkpoint"), "corrupt\n".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+				try {
+					reopened.runWorker("c", 1, 1000);
+					problems++;
+				} catch (RuntimeException e) {
+					problems += e.getMessage().contains("corrupt") ? 0 : 1;
+				}
+			} finally {
+				try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+					for (Path file : (Iterable<Path>)files::iterator) {
+						Files.delete(file);
+					}
+				}
+				Files.delete(directory);
+			}
+		} catch (IOException e) {
+			return e.toString();
+		}
+		return Integer.toString(problems);
+	}
+	
+	/** Count how many of a fixed set of pseudorandom public keys the range-based matcher for 'vanity' disagrees with base-58 encoding about, returning the count as a String. */
+	private String testPrefixMatcher(String vanity) {
+		IttyBittyBitcoinPrefixMatcher matcher = new IttyBittyBitcoinPrefixMatcher(this, vanity);
+		Random random = new Random(vanity.hashCode());
+		byte[] publicKey = new byte[20];
+		int mismatches = 0;
+		for (int i = 0; i<4096; i++) {
+			random.nextBytes(publicKey);
+			
+			// Force some leading 0x00 bytes, so that prefixes with several leading 1's are also exercised
+			for (int j = 0; j<(i&3); j++) {
+				publicKey[j] = 0;
+			}
+			if (matcher.matches(publicKey, 0) != encodeBase58(publicKeyToAddress(publicKey)).startsWith(vanity)) {
+				mismatches++;
+			}
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Count how many of a fixed set of pseudorandom addresses the compiled matcher for 'vanity' disagrees with an equivalent regular expression about, returning the count as a String. If 'real' is true, the pattern is also checked against the address of a real private key whose address it was built from. */
+	private String testVanityMatcher(String vanity) {
+		IttyBittyBitcoinVanityMatcher matcher = IttyBittyBitcoinVanityMatcher.compile(this, vanity);
+		
+		// Build the equivalent regular expression, where a pattern without wildcards is a prefix
+		boolean caseInsensitive = vanity.endsWith("/i");
+		String pattern = caseInsensitive ? vanity.substring(0, vanity.length() - 2) : vanity;
+		StringBuilder regex = new StringBuilder();
+		for (char c : pattern.toCharArray()) {
+			regex.append(c == '?' ? "." : c == '*' ? ".*" : Pattern.quote(Character.toString(c)));
+		}
+		if (pattern.indexOf('*') < 0 && pattern.indexOf('?') < 0) {
+			regex.append(".*");
+		}
+		Pattern reference = Pattern.compile(regex.toString(), caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+		
+		Random random = new Random(vanity.hashCode());
+		byte[] publicKey = new byte[20];
+		byte[] address = new byte[25];
+		int mismatches = 0;
+		for (int i = 0; i<4096; i++) {
+			random.nextBytes(publicKey);
+			publicKeyToAddress(publicKey, 0, address, 0);
+			String addressBase58 = encodeBase58(address);
+			boolean expected = reference.matcher(addressBase58).matches();
+			if ((matcher.matches(publicKey, 0) && matcher.matchesAddress(address, 0)) != expected || matcher.matchesAddress(addressBase58) != expected) {
+				mismatches++;
+			}
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Compile long prefixes, suffixes, and patterns from the address of a known private key, and count how many of them fail to match that address, returning the count as a String. */
+	private String testVanityMatcherLong() {
+		byte[] publicKey = privateKeyToPublicKey(decodeHex("0123456789ABCDEF0123456789ABCDEF0123456789ABCDEF0123456789ABCDEF"), true);
+		byte[] address = publicKeyToAddress(publicKey);
+		String addressBase58 = encodeBase58(address);
+		String[] vanities = new String[] {
+				addressBase58.substring(0, 7).toLowerCase() + "/i",
+				"*" + addressBase58.substring(addressBase58.length() - 12),
+				"*" + addressBase58.substring(addressBase58.length() - 12).toUpperCase() + "/i",
+				"*?" + addressBase58.substring(addressBase58.length() - 8, addressBase58.length() - 1) + "?",
+				addressBase58.substring(0, 4) + "*" + addressBase58.substring(10, 14) + "*" + addressBase58.substring(addressBase58.length() - 3),
+				addressBase58.substring(0, 3) + "??" + addressBase58.substring(5, addressBase58.length() - 2) + "?*"};
+		int mismatches = 0;
+		for (String vanity : vanities) {
+			IttyBittyBitcoinVanityMatcher matcher = IttyBittyBitcoinVanityMatcher.compile(this, vanity);
+			if (!matcher.matches(publicKey, 0) || !matcher.matchesAddress(address, 0) || !matcher.matchesAddress(addressBase58)) {
+				mismatches++;
+			}
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Test a multi-prefix matcher over the given vanity prefixes against the addresses of random public keys, returning the number of public keys where the matcher and the address disagree about any prefix as a String. */
+	private String testMultiPrefixMatcher(String... vanities) {
+		IttyBittyBitcoinMultiPrefixMatcher matcher = new IttyBittyBitcoinMultiPrefixMatcher(this, java.util.Arrays.asList(vanities));
+		Random random = new Random(vanities.length);
+		byte[] publicKey = new byte[20];
+		int[] prefixIndices = new int[matcher.getMaxMatches()];
+		int mismatches = 0;
+		for (int i = 0; i<16384; i++) {
+			random.nextBytes(publicKey);
+			
+			// Force some leading 0x00 bytes, so that prefixes with several leading 1's are also exercised
+			for (int j = 0; j<(i&3); j++) {
+				publicKey[j] = 0;
+			}
+			boolean[] matched = new boolean[vanities.length];
+			int found = matcher.matches(publicKey, 0, prefixIndices);
+			for (int j = 0; j<found; j++) {
+				matched[prefixIndices[j]] = true;
+			}
+			String address = encodeBase58(publicKeyToAddress(publicKey));
+			for (int j = 0; j<vanities.length; j++) {
+				if (matched[j] != address.startsWith(vanities[j])) {
+					mismatches++;
+					break;
+				}
+			}
+		}
+		return Integer.toString(mismatches);
+	}
+	
+	/** Run a multi-pattern vanity search for the given vanity prefixes, finding each once, and return the number of results that are missing or do not match their prefix as a String. */
+	private String testMultiVanitySearch(boolean compressed, String... vanities) {
+		final String[] addresses = new String[vanities.length];
+		final java.util.List<String> vanityList = java.util.Arrays.asList(vanities);
+		IttyBittyBitcoinMultiVanitySearch search = new IttyBittyBitcoinMultiVanitySearch(vanityList, compressed, 2, true, (s, vanity, privateKey, address) -> {
+			addresses[vanityList.indexOf(vanity)] = encodeBase58(privateKeyToAddress(privateKey, compressed)).equals(address) ? address : "";
+		}, null, 0).start();
+		try {
+			search.await();
+		} catch (InterruptedException e) { search.cancel(); throw new RuntimeException("Interrupted!", e); } catch (ExecutionException e) { throw new RuntimeException("Multi-pattern vanity search failed!", e.getCause()); }
+		int failures = 0;
+		for (int i = 0; i<vanities.length; i++) {
+			if (addresses[i] == null || !addresses[i].startsWith(vanities[i])) {
+				failures++;
+			}
+		}
+		return Integer.toString(failures);
+	}
+	
+	/** Perform a series of tests to check that all IttyBittyBitcoin functions are working as intended. Test log is returned as a String. */
+	public String performTests() {
+		String results = "";
+		results = results + performTest(encodeHex(decodeHex("000000")), "000000", "Hexadecimal encode/decode");
+		results = results + performTest(encodeBase58(decodeBase58("1111111111111111111114oLvT2")), "1111111111111111111114oLvT2", "Base-58 encode/decode");
+		results = results + performTest(encodeHex(decodeBase58("123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz")), "000111D38E5FC9071FFCD20B4A763CC9AE4F252BB4E48FD66A835E252ADA93FF480D6DD43DC62A641155A5", "Hex<->Base-58 re-encode, leading 0's/1's");
+		results = results + performTest(encodeBase58(decodeHex("000111D38E5FC9071FFCD20B4A763CC9AE4F252BB4E48FD66A835E252ADA93FF480D6DD43DC62A641155A5")), "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz", "Hex<->Base-58 re-encode, leading 0's/1's");
+		results = results + performTest(testBase58(), "0", "Base-58 encode/decode, compared with BigInteger implementation");
+		results = results + performTest(encodeHex(checksum(decodeHex("aa"))), "E51600D4", "Checksum computation");
+		results = results + performTest(encodeHex(hashSHA256(new byte[0])), "E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855", "SHA-256 of the empty string, NIST test vector");
+		results = results + performTest(encodeHex(hashSHA256("abc".getBytes(java.nio.charset.StandardCharsets.US_ASCII))), "BA7816BF8F01CFEA414140DE5DAE2223B00361A396177A9CB410FF61F20015AD", "SHA-256 of 'abc', NIST test vector");
+		results = results + performTest(encodeHex(hashSHA256("abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq".getBytes(java.nio.charset.StandardCharsets.US_ASCII))), "248D6A61D20638B8E5C026930C3E6039A33CE45964FF2167F6ECEDD419DB06C1", "SHA-256 of a two-block message, NIST test vector");
+		results = results + performTest(testHashKernels(), "0", "Fixed-length hash kernels, compared with SHA256Digest and RIPEMD160Digest");
+		results = results + performTest(encodeHex   (                  (                      (privateKeyToPublicPoint(decodeHex("01"), false)))), "0479BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798483ADA7726A3C4655DA4FBFC0E1108A8FD17B448A68554199C47D08FFB10D4B8", "Public point computation");
+		results = results + performTest(encodeHex(publicPointToPublicKey(decodeBase58("11111111111111111111LDo1Uoe"))), "59EC04C8998D69E15E3E9386A8FB6456C9F7892B", "Public key computation");
+		results = results + performTest(encodeHex   (                  (publicPointToPublicKey(privateKeyToPublicPoint(decodeHex("01"), false)))), "91B24BF9F5288532960AC687ABB035127B1D28A5", "Public key computation");
+		results = results + performTest(encodeBase58(publicKeyToAddress(decodeHex("0000000000000000000000000000000000000000"))), "1111111111111111111114oLvT2", "Address computation");
+		results = results + performTest(encodeBase58(publicKeyToAddress(publicPointToPublicKey(privateKeyToPublicPoint(decodeHex("01"), false)))), "1EHNa6Q4Jz2uvNExL497mE43ikXhwF6kZm", "Address computation");
+		IttyBittyBitcoinCandidateGenerator generator = new IttyBittyBitcoinCandidateGenerator(decodeHex("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364140"), 4);
+		generator.nextBatch();
+		results = results + performTest(encodeHex(generator.getEncodedPoint(0, true)), encodeHex(privateKeyToPublicPoint(generator.getPrivateKey(0), true)), "Incremental candidate generation");
+		generator.nextBatch();
+		results = results + performTest(encodeHex(generator.getEncodedPoint(2, false)), encodeHex(privateKeyToPublicPoint(decodeHex("05"), false)), "Incremental candidate generation, wrapping around curve order");
+		results = results + performTest(testCandidateVariants(), "0", "Negated and endomorphism candidate variants, with adjusted private keys");
+		results = results + performTest(testFixedBaseTable(), "0", "Fixed-base table multiplication, save and load");
+		results = results + performTest(testBatch(), "0", "Batch address derivation");
+		results = results + performTest(testKeyGenerator(), "0", "DRBG keyset generation pipeline");
+		results = results + performTest(testWatchList(), "0", "Watch list build, load, and lookup");
+		results = results + performTest(testKeysetStore(), "0", "Keyset store append, index, recovery, export, and import");
+		results = results + performTest(testDerivationCache(), "0", "Derivation cache hits, misses, evictions, and copies");
+		results = results + performTest(testDaemon(null) + testDaemon("s3cret"), "00", "Daemon pipelined requests, allowed commands, and tokens");
+		results = results + performTest(testPartitionedSearch(), "0", "Partitioned vanity search, checkpoints, and claims");
+		results = results + performTest(testPrefixMatcher("1B") + testPrefixMatcher("1zz") + testPrefixMatcher("11") + testPrefixMatcher("111"), "0000", "Vanity prefix range matching");
+		results = results + performTest(String.format("%.0f %.0f", new IttyBittyBitcoinPrefixMatcher(this, "1").getDifficulty(), new IttyBittyBitcoinPrefixMatcher(this, "111").getDifficulty()), "1 65536", "Vanity prefix difficulty estimate");
+		results = results + performTest(testVanityMatcher("1b/i") + testVanityMatcher("1Bc/i") + testVanityMatcher("1B") + testVanityMatcher("*z") + testVanityMatcher("*zZ/i") + testVanityMatcher("*?2") + testVanityMatcher("1*z*") + testVanityMatcher("1?c*") + testVanityMatcher("1b*?x/i"), "000000000", "Case-insensitive prefix, suffix, and wildcard pattern matching");
+		results = results + performTest(testVanityMatcherLong(), "0", "Long vanity prefixes, suffixes, and patterns from a known address");
+		results = results + performTest(String.format("%.0f %.0f %.0f", IttyBittyBitcoinVanityMatcher.compile(this, "*zz").getDifficulty(), IttyBittyBitcoinVanityMatcher.compile(this, "*z/i").getDifficulty(), IttyBittyBitcoinVanityMatcher.compile(this, "1/i").getDifficulty()), "3364 29 1", "Vanity suffix difficulty estimate");
+		results = results + performTest(testMultiPrefixMatcher("1B", "1Bc", "1zz", "11", "111", "1B") + testMultiPrefixMatcher("1"), "00", "Multi-pattern vanity prefix range matching");
+		results = results + performTest(testMultiVanitySearch(true, "1A", "1B", "1C", "1AA"), "0", "Multi-pattern vanity address search");
+		results = results + performTest(testMultiVanitySearchFailure(), "IllegalStateException true", "Multi-pattern vanity search ending on a worker failure");
+		results = results + performTest(encodeBase58(publicKeyToAddress(publicPointToPublicKey(privateKeyToPublicPoint(findVanityAddress("1B", true), true)))).substring(0, 2), "1B", "Vanity address search");
+		results = results + performTest(Boolean.toString(encodeBase58(privateKeyToAddress(findVanityAddress("*z", false), false)).endsWith("z")), "true", "Vanity suffix search");
+		IttyBittyBitcoinVanitySearch variantSearch = new IttyBittyBitcoinVanitySearch("1B", false, true, 1, null, 0).start();
+		try {
+			results = results + performTest(encodeBase58(privateKeyToAddress(variantSearch.get(), variantSearch.isResultCompressed())).substring(0, 2), "1B", "Vanity address search over all variants");
+		} catch (InterruptedException e) {
+			variantSearch.cancel(true);
+			throw new RuntimeException("Interrupted!", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Vanity search failed!", e.getCause());
+		}
+		return results;
+	}
+
+	/** Stress test this instance from 1, 2, 4, ... up to 'maxThreads' threads at once, each deriving addresses for 'milliseconds' milliseconds and checking them against addresses derived on a single thread beforehand. Test log, including the throughput at each thread count, is returned as a String. */
+	public String performConcurrencyTests(int maxThreads, long milliseconds) {
+		// Derive the expected addresses of a fixed set of private keys on this thread alone
+		Random random = new Random(0);
+		final byte[][] privateKeys       = new byte  [64][32];
+		final String[] expectedAddresses = new String[privateKeys.length];
+		for (int i = 0; i<privateKeys.length; i++) {
+			random.nextBytes(privateKeys[i]);
+			expectedAddresses[i] = encodeBase58(privateKeyToAddress(privateKeys[i], (i&1)==0));
+		}
+		
+		String results = "";
+		for (int threadCount = 1; threadCount<=maxThreads; threadCount = threadCount==maxThreads ? threadCount+1 : Math.min(threadCount*2, maxThreads)) {
+			final AtomicLong derived    = new AtomicLong();
+			final AtomicLong mismatches = new AtomicLong();
+			final long deadline = System.nanoTime() + milliseconds * 1000000L;
+			
+			// Every thread shares this instance, deriving the addresses in a different order to the others
+			Thread[] threads = new Thread[threadCount];
+			for (int t = 0; t<threadCount; t++) {
+				final int threadIndex = t;
+				threads[t] = new Thread(() -> {
+					long count = 0;
+					for (int i = threadIndex; System.nanoTime()<deadline; i++, count++) {
+						int keyIndex = i % privateKeys.length;
+						if (!encodeBase58(privateKeyToAddress(privateKeys[keyIndex], (keyIndex&1)==0)).equals(expectedAddresses[keyIndex])) {
+							mismatches.incrementAndGet();
+						}
+					}
+					derived.addAndGet(count);
+				});
+				threads[t].start();
+			}
+			for (int t = 0; t<threadCount; t++) {
+				try {
+					threads[t].join();
+				} catch (InterruptedException e) {
+					throw new RuntimeException("Interrupted while performing concurrency tests!", e);
+				}
+			}
+			
+			results = results + performTest(Long.toString(mismatches.get()), "0", "Concurrent address derivation, " + threadCount + " thread(s), " + (derived.get() * 1000L / Math.max(milliseconds, 1)) + " addresses/sec");
+		}
+		return results;
+	}
+	
+	/** Convert the given unsigned base-2 number, stored as an array of bytes, into a hexadecimal string. Any 0-padding on the left of the hexadecimal string is preserved. */
+	public String encodeHex(byte[] value) {
+		char[] chars = new char[value.length * 2];
+		for (int i = 0; i<value.length; i++) {
+			chars[2*i    ] = hexChars[(value[i] >>> 4) & 0xF];
+			chars[2*i + 1] = hexChars[ value[i]        & 0xF];
+		}
+		return new String(chars);
+	}
+	
+	/** Convert the given hexadecimal string to an unsigned base-2 number stored as an array of bytes. Any 0-padding on the left of the hexadecimal string is preserved. */
+	public byte[] decodeHex(String hexString) {
+		if (hexString.length() % 2 != 0) {
+			throw new RuntimeException("Unable to decode hexadecimal: Given text has an odd number of digits!");
+		}
+		byte[] value = new byte[hexString.length() / 2];
+		for (int i = 0; i<value.length; i++) {
+			int high = decodeHexDigit(hexString.charAt(2*i    ));
+			int low  = decodeHexDigit(hexString.charAt(2*i + 1));
+			if (high < 0 || low < 0) {
+				throw new RuntimeException("Unable to decode hexadecimal: Given text contains a character that is not a hexadecimal digit!");
+			}
+			value[i] = (byte)((high << 4) | low);
+		}
+		return value;
+	}
+	
+	/** Returns the value of the given ASCII hexadecimal digit, in either case, or -1 if it is not one. */
+	private static int decodeHexDigit(char c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		}
+		if (c >= 'A' && c <= 'F') {
+			return c - 'A' + 10;
+		}
+		if (c >= 'a' && c <= 'f') {
+			return c - 'a' + 10;
+		}
+		return -1;
+	}
+	
+	/** Converts the given value, an unsigned base-2 array of bytes, to a base-58 value. Any 1-padding on the left of the base-58 string is preserved. */
+	public String encodeBase58(byte[] value) {
+		return threadState.get().base58.encode(value);
+	}
+	
+	/** Converts the given base-58 value to a an unsigned base-2 array of bytes. Any 1-padding on the left of the base-58 string is preserved. */
+	public byte[] decodeBase58(String base58String) {
+		return threadState.get().base58.decode(base58String);
+	}
+	
 	/** Compute the SHA-256 hash of the given value. */
 	public byte[] hashSHA256(byte[] value) {
-		return messageDigestSHA256.digest(value);
+		byte[] hash = new byte[32];
+		threadState.get().hash.sha256(value, 0, value.length, hash, 0);
+		return hash;
 	}
 	
 	/** Compute checksum of the given value, which is the last 4 bytes of the result of SHA-256 hashing the value twice. */
 	public byte[] checksum(byte[] value) {
-		// Perform SHA-256 hash on value twice
-		byte[] doubleSHA256 = 
-				messageDigestSHA256.digest(
-				messageDigestSHA256.digest(
-						value));
-		
-		// Return first 4 bytes of double-SHA-256-hashed value
-		return new byte[]{doubleSHA256[0], 
-						  doubleSHA256[1], 
-						  doubleSHA256[2], 
-						  doubleSHA256[3]};
+		byte[] checksum = new byte[4];
+		threadState.get().hash.checksum(value, 0, value.length, checksum, 0);
+		return checksum;
 	}
 	
 	/** Compute the public point that this private key represents. This point is used to compute the public key and address. */
 	public byte[] privateKeyToPublicPoint(byte[] privateKey, boolean compressed) {
+		IttyBittyBitcoinDerivationCache cache = derivationCache;
+		return cache != null ? cache.privateKeyToPublicPoint(this, privateKey, compressed) : derivePublicPoint(privateKey, compressed);
+	}
+	
+	/** Compute the public point that this private key represents, bypassing the derivation cache. */
+	byte[] derivePublicPoint(byte[] privateKey, boolean compressed) {
 		// Convert privateKey to two's complement for the BigInteger constructor, by appending a sign byte of 0x00
 		byte[] privateKeyIn = new byte[privateKey.length + 1];
 		privateKeyIn[0] = 0;
@@ -215,26 +1008,34 @@ public class IttyBittyBitcoin {
 		
 		// Use BouncyCastle to convert the private key into a public key
 		BigInteger d = new BigInteger(privateKeyIn);
-        ECPoint q = domain.getG().multiply(d);
-        
-        ECPublicKeyParameters publicParams = new ECPublicKeyParameters(q, domain);
-        return publicParams.getQ().getEncoded(compressed);
+		ECPoint q = multiplyGenerator(d);
+		if (q.isInfinity()) {
+			throw new RuntimeException("Unable to convert private key: Given private key is a multiple of the curve order!");
+		}
+		return q.getEncoded(compressed);
 	}
 	
-	/** Compute the SHA-256 hash followed by the RIME MD-160 hash of the given value, turning the given public point into a public key. */
-	public byte[] publicPointToPublicKey(byte[] value) {
-		// SHA-256 hash the value
-		byte[] sha256HashedValue = messageDigestSHA256.digest(value);
-		
-		// RIME MD-160 hash the value
-		messageDigestRMD160.update(sha256HashedValue, 0, sha256HashedValue.length);
+	/** Compute the RIME MD-160 hash of the given value. */
+	public byte[] hashRMD160(byte[] value) {
+		RIPEMD160Digest messageDigestRMD160 = threadState.get().messageDigestRMD160;
+		messageDigestRMD160.update(value, 0, value.length);
 		byte[] rmd160HashedValue = new byte[messageDigestRMD160.getDigestSize()];
 		messageDigestRMD160.doFinal(rmd160HashedValue, 0);
-		
-		// Return the final value
 		return rmd160HashedValue;
 	}
 	
+	/** Compute the SHA-256 hash followed by the RIME MD-160 hash of the given value, turning the given public point into a public key. */
+	public byte[] publicPointToPublicKey(byte[] value) {
+		byte[] publicKey = new byte[20];
+		publicPointToPublicKey(value, 0, value.length, publicKey, 0);
+		return publicKey;
+	}
+	
+	/** Turn the 'length'-byte public point at 'offset' in 'value' into a public key, writing the 20-byte public key at 'outOffset' in 'out' rather than allocating a new array. */
+	public void publicPointToPublicKey(byte[] value, int offset, int length, byte[] out, int outOffset) {
+		threadState.get().hash.hash160(value, offset, length, out, outOffset);
+	}
+	
 	/** Compute the address that is represented by the given public key. This is the number which, when encoded in base-58, is used to publicly identify this bitcoin wallet. */
 	public byte[] publicKeyToAddress(byte[] value) {
 		// Pre-check that the key is in the correct form
@@ -242,75 +1043,64 @@ public class IttyBittyBitcoin {
 			throw new RuntimeException("Input value must be 20-byte (160-bit) to be converted to a public address.");
 		}
 		
-		// Prepend 0x00, the version number
-		byte[] appendedValue = new byte[value.length + 1];
-		for (int i = 0; i<value.length; i++) {
-			appendedValue[i+1] = value[i];
-		}
-		appendedValue[0] = 0;
-		
-		// Append the checksum
-		byte[] checksum = checksum(appendedValue);
-		byte[] finalAddress = new byte[appendedValue.length + 4];
-		for (int i = 0; i<appendedValue.length; i++) {
-			finalAddress[i] = appendedValue[i];
-		}
-		finalAddress[appendedValue.length + 0] = checksum[0];
-		finalAddress[appendedValue.length + 1] = checksum[1];
-		finalAddress[appendedValue.length + 2] = checksum[2];
-		finalAddress[appendedValue.length + 3] = checksum[3];
+		// Prepend 0x00, the version number, and append the checksum
+		byte[] finalAddress = new byte[25];
+		publicKeyToAddress(value, 0, finalAddress, 0);
 		return finalAddress;
 	}
 	
+	/** Compute the address represented by the 20-byte public key at 'offset' in 'value,' writing the 25-byte address at 'outOffset' in 'out' rather than allocating a new array. */
+	public void publicKeyToAddress(byte[] value, int offset, byte[] out, int outOffset) {
+		threadState.get().hash.address(value, offset, out, outOffset);
+	}
+	
 	/** Convenience function successively calling publicKeyToAddress(...) and publicPointToPublicKey(...). See those for documentation. */
 	public byte[] publicPointToAddress(byte[] publicPoint) {
+		IttyBittyBitcoinDerivationCache cache = derivationCache;
+		if (cache != null) {
+			return cache.publicPointToAddress(this, publicPoint);
+		}
 		return publicKeyToAddress(publicPointToPublicKey(publicPoint));
 	}
 	
 	/** Convenience function successively calling publicPointToPublicKey(...) and privateKeyToPublicPoint(...). See those for documentation. */
 	public byte[] privateKeyToPublicKey(byte[] privateKey, boolean compressed) {
+		IttyBittyBitcoinDerivationCache cache = derivationCache;
+		if (cache != null) {
+			return cache.privateKeyToPublicKey(this, privateKey, compressed);
+		}
 		return publicPointToPublicKey(privateKeyToPublicPoint(privateKey, compressed));
 	}
 	
 	/** Convenience function successively calling publicKeyToAddress(...), publicPointToPublicKey(...), and privateKeyToPublicPoint(...). See those for documentation. */
 	public byte[] privateKeyToAddress(byte[] privateKey, boolean compressed) {
+		IttyBittyBitcoinDerivationCache cache = derivationCache;
+		if (cache != null) {
+			return cache.privateKeyToAddress(this, privateKey, compressed);
+		}
 		return publicKeyToAddress(publicPointToPublicKey(privateKeyToPublicPoint(privateKey, compressed)));
 	}
 	
-	/** Returns a new pseudorandomly-generated private key. */
+	/** Returns a new randomly-generated private key, drawn from this thread's DRBG. See IttyBittyBitcoinKeyGenerator for minting many keysets at once. */
 	public byte[] generateRandomPrivateKey() {
-		Random random = new Random();
-		byte[] randomBytes = new byte[8];
-		random.nextBytes(randomBytes);
-		return hashSHA256(randomBytes);
+		return IttyBittyBitcoinKeyGenerator.nextPrivateKey();
 	}
 	
-	/** Find a vanity Bitcoin address, which will start with the given String 'vanity.' The private key that corresponds to the address will be returned. This is done probabilistically, and can take enormous amounts of time and CPU for longer vanity Strings. */
+	/** Find a vanity Bitcoin address, which will start with the given String 'vanity,' or match it as a suffix or wildcard pattern as IttyBittyBitcoinVanityMatcher.compile(...) describes. The private key that corresponds to the address will be returned. This is done probabilistically, and can take enormous amounts of time and CPU for longer vanity Strings. */
 	public byte[] findVanityAddress(String vanity, boolean compressed) {
-		// Check to see if the vanity string could actually be found at all
+		return findVanityAddress(vanity, compressed, 1);
+	}
+	
+	/** Find a vanity Bitcoin address as findVanityAddress(...) does, but spread the search across 'threadCount' worker threads. See IttyBittyBitcoinVanitySearch for a search that can be cancelled and report its progress. */
+	public byte[] findVanityAddress(String vanity, boolean compressed, int threadCount) {
+		IttyBittyBitcoinVanitySearch search = new IttyBittyBitcoinVanitySearch(vanity, compressed, threadCount, null, 0).start();
 		try {
-			decodeBase58(vanity);
-		} catch (Exception e) {
-			throw new RuntimeException("Unable to search for vanity address: Given vanity text cannot be base-58 encoded!", e);
-		}
-		if (!vanity.startsWith("1")) {
-			throw new RuntimeException("Unable to search for vanity address: Given vanity text does not start with a '1'!");
-		}
-		
-		// Search random private keys, trying to find a a private key that has a public key matching the vanity string
-		Random random = new Random();
-		byte[] privateKey = new byte[8];
-		byte[] address;
-		String addressBase58;
-		while (true) {
-			random.nextBytes(privateKey);
-			
-			address = publicKeyToAddress(publicPointToPublicKey(privateKeyToPublicPoint(privateKey, compressed)));
-			addressBase58 = encodeBase58(address);
-			if (addressBase58.startsWith(vanity)) {
-				break;
-			}
+			return search.get();
+		} catch (InterruptedException e) {
+			search.cancel(true);
+			throw new RuntimeException("Interrupted while searching for vanity address!", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Unable to find vanity address!", e.getCause());
 		}
-		return privateKey;
 	}
 }
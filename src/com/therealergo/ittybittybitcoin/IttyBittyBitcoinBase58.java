@@ -0,0 +1,256 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.nio.ByteBuffer;
+
+/** Base-58 encoder and decoder that works on arrays of integer limbs rather than BigIntegers, and writes into caller-supplied buffers. Any 1-padding on the left of base-58 strings is preserved as 0x00 bytes, and vice-versa. Instances keep reusable scratch space, so they are not thread-safe and should be used by one thread at a time. */
+public class IttyBittyBitcoinBase58 {
+	/** Array where every position's index is mapped to the base-58 encoded character representing that index. */
+	static final char[] base58ToChar = new char[] {
+			'1', '2', '3', '4', '5', '6', '7', '8', '9',
+			'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H',      'J', 'K', 'L', 'M', 'N',      'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z',
+			'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k',      'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z'};
+	/** Array where every position's index is mapped to the base-58 value of the ASCII/UTF-8 character there, or -1 if the character is not valid in base-58 encoding. */
+	static final byte[] charToBase58 = new byte[] {
+			  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,
+			  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,
+			  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,  -1,
+			  -1,   0,   1,   2,   3,   4,   5,   6,   7,   8,  -1,  -1,  -1,  -1,  -1,  -1,
+			  -1,   9,  10,  11,  12,  13,  14,  15,  16,  -1,  17,  18,  19,  20,  21,  -1,
+			  22,  23,  24,  25,  26,  27,  28,  29,  30,  31,  32,  -1,  -1,  -1,  -1,  -1,
+			  -1,  33,  34,  35,  36,  37,  38,  39,  40,  41,  42,  43,  -1,  44,  45,  46,
+			  47,  48,  49,  50,  51,  52,  53,  54,  55,  56,  57,  -1,  -1,  -1,  -1,  -1
+	};
+	
+	/** Number of base-58 digits held by each limb while encoding. */
+	private static final int  digitsPerLimb = 5;
+	/** Value of each limb while encoding, 58^5, chosen as the largest power of 58 where limb * 2^32 still fits in a long. */
+	private static final long limbBase      = 58L * 58L * 58L * 58L * 58L;
+	/** Powers of 58 from 58^0 through 58^5, used to scale partial chunks of base-58 digits while decoding. */
+	private static final long[] powersOf58  = new long[] {1L, 58L, 58L * 58L, 58L * 58L * 58L, 58L * 58L * 58L * 58L, limbBase};
+	
+	/** Scratch limbs, reused between calls and grown only when a longer value is seen. */
+	private int [] limbs  = new int [16];
+	/** Scratch characters used by the String-returning encode(...), reused between calls. */
+	private char[] chars  = new char[64];
+	/** Scratch bytes used by the array-returning decode(...), reused between calls. */
+	private byte[] bytes  = new byte[64];
+	
+	/** Returns the maximum number of base-58 characters that encoding 'length' bytes can produce. */
+	public static int maxEncodedLength(int length) {
+		// log(256) / log(58) is slightly less than 1.3658
+		return (int)(length * 13658L / 10000L) + 1;
+	}
+	
+	/** Returns the maximum number of bytes that decoding 'length' base-58 characters can produce. */
+	public static int maxDecodedLength(int length) {
+		return length;
+	}
+	
+	/** Returns a bit mask of the base-58 digit values that the pattern character 'c' accepts, which is every digit for a '?' and both cases of a letter if 'caseInsensitive' is true. Returns 0 if 'c' accepts no digit at all. */
+	static long digitMask(char c, boolean caseInsensitive) {
+		if (c == '?') {
+			return (1L << 58) - 1;
+		}
+		long mask = digitBit(c);
+		if (caseInsensitive) {
+			mask |= digitBit(Character.toLowerCase(c)) | digitBit(Character.toUpperCase(c));
+		}
+		return mask;
+	}
+	
+	/** Returns a bit mask with only the bit of the base-58 digit value of 'c' set, or 0 if 'c' is not a base-58 character. */
+	static long digitBit(char c) {
+		if (c >= charToBase58.length || charToBase58[c] < 0) {
+			return 0;
+		}
+		return 1L << charToBase58[c];
+	}
+	
+	/** Make sure that the scratch limbs can hold at least 'count' limbs. */
+	private void ensureLimbs(int count) {
+		if (limbs.length < count) {
+			limbs = new int[Math.max(count, limbs.length * 2)];
+		}
+	}
+	
+	/** Encode the 'length' bytes at 'offset' in 'value' as base-58, writing the characters at 'outOffset' in 'out.' Returns the number of characters written. 'out' must have room for maxEncodedLength(length) characters. */
+	public int encode(byte[] value, int offset, int length, char[] out, int outOffset) {
+		// Count leading 0x00 bytes, each of which is encoded as a '1'
+		int zeros = 0;
+		while (zeros<length && value[offset + zeros]==0) {
+			zeros++;
+		}
+		
+		// Convert the remaining bytes to base 58^5 limbs, stored least-significant first, feeding in up to 4 bytes at a time
+		ensureLimbs(maxEncodedLength(length - zeros) / digitsPerLimb + 1);
+		int limbCount = 0;
+		int position = offset + zeros;
+		int end = offset + length;
+		int chunkLength = (length - zeros) % 4 == 0 ? 4 : (length - zeros) % 4;
+		while (position < end) {
+			long carry = 0;
+			for (int i = 0; i<chunkLength; i++) {
+				carry = (carry << 8) | (value[position++] & 0xFF);
+			}
+			int shift = 8 * chunkLength;
+			for (int i = 0; i<limbCount; i++) {
+				long t = ((long)limbs[i] << shift) + carry;
+				limbs[i] = (int)(t % limbBase);
+				carry    =       t / limbBase;
+			}
+			while (carry != 0) {
+				limbs[limbCount++] = (int)(carry % limbBase);
+				carry              =       carry / limbBase;
+			}
+			chunkLength = 4;
+		}
+		
+		// The most significant limb is written without leading '1' digits, and every other limb as exactly 5 digits
+		int topDigits = 0;
+		if (limbCount > 0) {
+			for (int top = limbs[limbCount - 1]; top != 0; top /= 58) {
+				topDigits++;
+			}
+		}
+		int written = zeros + topDigits + (limbCount > 0 ? (limbCount - 1) * digitsPerLimb : 0);
+		for (int i = 0; i<zeros; i++) {
+			out[outOffset + i] = '1';
+		}
+		int digitPosition = outOffset + written;
+		for (int i = 0; i<limbCount; i++) {
+			int limb = limbs[i];
+			int digits = i == limbCount - 1 ? topDigits : digitsPerLimb;
+			for (int j = 0; j<digits; j++) {
+				out[--digitPosition] = base58ToChar[limb % 58];
+				limb /= 58;
+			}
+		}
+		return written;
+	}
+	
+	/** Encode the 'length' bytes at 'offset' in 'value' as base-58, writing the characters as ASCII bytes at the current position of 'out' and advancing its position. Returns the number of characters written. */
+	public int encode(byte[] value, int offset, int length, ByteBuffer out) {
+		int written = encode(value, offset, length, scratchChars(maxEncodedLength(length)), 0);
+		for (int i = 0; i<written; i++) {
+			out.put((byte)chars[i]);
+		}
+		return written;
+	}
+	
+	/** Converts the given value, an unsigned base-2 array of bytes, to a base-58 value. Any 1-padding on the left of the base-58 string is preserved. */
+	public String encode(byte[] value) {
+		int written = encode(value, 0, value.length, scratchChars(maxEncodedLength(value.length)), 0);
+		return new String(chars, 0, written);
+	}
+	
+	/** Decode the 'length' base-58 characters at 'offset' in 'base58String,' writing the bytes at 'outOffset' in 'out.' Returns the number of bytes written. 'out' must have room for maxDecodedLength(length) bytes. */
+	public int decode(CharSequence base58String, int offset, int length, byte[] out, int outOffset) {
+		// Count leading 1's, each of which is decoded as a 0x00 byte
+		int ones = 0;
+		while (ones<length && base58String.charAt(offset + ones)=='1') {
+			ones++;
+		}
+		
+		// Convert the remaining characters to base 2^32 limbs, stored least-significant first, feeding in up to 5 digits at a time
+		ensureLimbs((length - ones) / 4 + 1);
+		int limbCount = 0;
+		int position = offset + ones;
+		int end = offset + length;
+		while (position < end) {
+			int chunkLength = Math.min(digitsPerLimb, end - position);
+			long carry = 0;
+			for (int i = 0; i<chunkLength; i++) {
+				carry = carry * 58 + decodeCharacter(base58String.charAt(position++));
+			}
+			long multiplier = powersOf58[chunkLength];
+			for (int i = 0; i<limbCount; i++) {
+				long t = (limbs[i] & 0xFFFFFFFFL) * multiplier + carry;
+				limbs[i] = (int)t;
+				carry    = t >>> 32;
+			}
+			if (carry != 0) {
+				limbs[limbCount++] = (int)carry;
+			}
+		}
+		
+		// Write the leading 0x00 bytes, then the limbs most-significant first without any leading 0x00 bytes
+		int significantBytes = 0;
+		if (limbCount > 0) {
+			significantBytes = 4 * (limbCount - 1) + (4 - Integer.numberOfLeadingZeros(limbs[limbCount - 1]) / 8);
+		}
+		for (int i = 0; i<ones; i++) {
+			out[outOffset + i] = 0;
+		}
+		int bytePosition = outOffset + ones + significantBytes;
+		for (int i = 0; i<limbCount; i++) {
+			int limb = limbs[i];
+			int limbBytes = i == limbCount - 1 ? significantBytes - 4 * (limbCount - 1) : 4;
+			for (int j = 0; j<limbBytes; j++) {
+				out[--bytePosition] = (byte)limb;
+				limb >>>= 8;
+			}
+		}
+		return ones + significantBytes;
+	}
+	
+	/** Decode the 'length' base-58 characters at 'offset' in 'base58String,' writing the bytes at the current position of 'out' and advancing its position. Returns the number of bytes written. */
+	public int decode(CharSequence base58String, int offset, int length, ByteBuffer out) {
+		int written = decode(base58String, offset, length, scratchBytes(maxDecodedLength(length)), 0);
+		out.put(bytes, 0, written);
+		return written;
+	}
+	
+	/** Converts the given base-58 value to a an unsigned base-2 array of bytes. Any 1-padding on the left of the base-58 string is preserved. */
+	public byte[] decode(String base58String) {
+		int written = decode(base58String, 0, base58String.length(), scratchBytes(maxDecodedLength(base58String.length())), 0);
+		byte[] value = new byte[written];
+		System.arraycopy(bytes, 0, value, 0, written);
+		return value;
+	}
+	
+	/** Returns the base-58 value of the given character, throwing an exception if it is not valid in base-58 encoding. */
+	private static int decodeCharacter(char character) {
+		if (character>127 || charToBase58[character]<0) {
+			throw new RuntimeException("Invalid character for Base-58 encoding!");
+		}
+		return charToBase58[character];
+	}
+	
+	/** Returns the scratch characters, grown to hold at least 'count' characters. */
+	private char[] scratchChars(int count) {
+		if (chars.length < count) {
+			chars = new char[Math.max(count, chars.length * 2)];
+		}
+		return chars;
+	}
+	
+	/** Returns the scratch bytes, grown to hold at least 'count' bytes. */
+	private byte[] scratchBytes(int count) {
+		if (bytes.length < count) {
+			bytes = new byte[Math.max(count, bytes.length * 2)];
+		}
+		return bytes;
+	}
+}
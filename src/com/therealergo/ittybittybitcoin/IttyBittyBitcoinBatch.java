@@ -0,0 +1,329 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/** Derives addresses for many keys at once, splitting the work into chunks that run in parallel on a fork-join pool. Each worker thread reuses the per-thread hashing state of the shared IttyBittyBitcoin instance. Batches never go through the derivation cache, since each key is derived only once and would only evict the entries that other callers reuse. */
+public class IttyBittyBitcoinBatch {
+	/** Interface used to process one contiguous range of a batch on a worker thread. */
+	private static interface RangeBody {
+		/** Process every item from index 'from' (inclusive) to 'to' (exclusive). */
+		public void run(int from, int to);
+	}
+	
+	/** Fork-join task that splits a range in half until it is no larger than the chunk size, then runs it. */
+	private static class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private final RangeBody body;
+		private final int       from;
+		private final int       to;
+		private final int       chunkSize;
+		
+		private RangeTask(RangeBody body, int from, int to, int chunkSize) {
+			this.body      = body;
+			this.from      = from;
+			this.to        = to;
+			this.chunkSize = chunkSize;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				body.run(from, to);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RangeTask(body, from, middle, chunkSize), new RangeTask(body, middle, to, chunkSize));
+			}
+		}
+	}
+	
+	/** Number of bytes of an input file mapped into memory at once by privateKeysToAddresses(Path, ...). */
+	private static final int mappedWindowSize = 64 * 1024 * 1024;
+	/** Number of lines of an input file processed per batch by privateKeysToAddresses(Path, ...). */
+	private static final int fileBatchLines   = 1 << 16;
+	
+	/** The IttyBittyBitcoin instance shared by every worker. */
+	private final IttyBittyBitcoin ibb;
+	/** The fork-join pool that batches run on. */
+	private final ForkJoinPool     pool;
+	/** The largest number of keys that one worker processes without splitting the work further. */
+	private final int              chunkSize;
+	
+	/** Create a new batch deriver that runs on the common fork-join pool, with a default chunk size. */
+	public IttyBittyBitcoinBatch(IttyBittyBitcoin ibb) {
+		this(ibb, ForkJoinPool.commonPool(), 256);
+	}
+	
+	/** Create a new batch deriver that runs on the given fork-join pool, processing at most 'chunkSize' keys per task. */
+	public IttyBittyBitcoinBatch(IttyBittyBitcoin ibb, ForkJoinPool pool, int chunkSize) {
+		if (chunkSize < 1) {
+			throw new RuntimeException("Batch chunk size must be at least 1.");
+		}
+		this.ibb       = ibb;
+		this.pool      = pool;
+		this.chunkSize = chunkSize;
+	}
+	
+	/** Run 'body' over the range [0, count), split into chunks across the fork-join pool. */
+	private void runChunked(int count, RangeBody body) {
+		if (count > 0) {
+			pool.invoke(new RangeTask(body, 0, count, chunkSize));
+		}
+	}
+	
+	/** Derive the 20-byte public key of the given private key into 'publicKey,' bypassing the derivation cache. */
+	private void derivePublicKey(byte[] privateKey, boolean compressed, byte[] publicKey) {
+		byte[] publicPoint = ibb.derivePublicPoint(privateKey, compressed);
+		ibb.publicPointToPublicKey(publicPoint, 0, publicPoint.length, publicKey, 0);
+	}
+	
+	/** Batch version of privateKeyToAddress(...). Returns the address of each private key, in the same order as the given private keys. */
+	public byte[][] privateKeysToAddresses(byte[][] privateKeys, boolean compressed) {
+		byte[][] addresses = new byte[privateKeys.length][];
+		runChunked(privateKeys.length, (from, to) -> {
+			byte[] publicKey = new byte[20];
+			for (int i = from; i<to; i++) {
+				derivePublicKey(privateKeys[i], compressed, publicKey);
+				addresses[i] = new byte[25];
+				ibb.publicKeyToAddress(publicKey, 0, addresses[i], 0);
+			}
+		});
+		return addresses;
+	}
+	
+	/** Batch version of publicPointToAddress(...). Returns the address of each public point, in the same order as the given public points. */
+	public byte[][] publicPointsToAddresses(byte[][] publicPoints) {
+		byte[][] addresses = new byte[publicPoints.length][];
+		runChunked(publicPoints.length, (from, to) -> {
+			byte[] publicKey = new byte[20];
+			for (int i = from; i<to; i++) {
+				ibb.publicPointToPublicKey(publicPoints[i], 0, publicPoints[i].length, publicKey, 0);
+				addresses[i] = new byte[25];
+				ibb.publicKeyToAddress(publicKey, 0, addresses[i], 0);
+			}
+		});
+		return addresses;
+	}
+	
+	/** Streaming version of privateKeysToAddresses(...). Private keys are pulled from the given stream one batch at a time, and the returned stream yields each address in the same order as the private keys. */
+	public Stream<byte[]> privateKeysToAddresses(Stream<byte[]> privateKeys, boolean compressed) {
+		return streamBatches(privateKeys, (batch) -> privateKeysToAddresses(batch, compressed));
+	}
+	
+	/** Streaming version of publicPointsToAddresses(...). Public points are pulled from the given stream one batch at a time, and the returned stream yields each address in the same order as the public points. */
+	public Stream<byte[]> publicPointsToAddresses(Stream<byte[]> publicPoints) {
+		return streamBatches(publicPoints, this::publicPointsToAddresses);
+	}
+	
+	/** Interface used to derive a whole batch of results from a batch of inputs. */
+	private static interface BatchFunction {
+		public byte[][] apply(byte[][] batch);
+	}
+	
+	/** Returns a stream that pulls batches from 'input,' derives them with 'function,' and yields the results in order. */
+	private Stream<byte[]> streamBatches(Stream<byte[]> input, BatchFunction function) {
+		Iterator<byte[]> inputIterator = input.iterator();
+		int batchSize = chunkSize * Math.max(pool.getParallelism(), 1) * 4;
+		Spliterator<byte[]> results = new Spliterators.AbstractSpliterator<byte[]>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			private byte[][] batch = new byte[batchSize][];
+			private byte[][] derived;
+			private int      derivedPosition;
+			
+			@Override
+			public boolean tryAdvance(Consumer<? super byte[]> action) {
+				// Pull and derive the next batch once every result of the previous one has been consumed
+				if (derived == null || derivedPosition == derived.length) {
+					int count = 0;
+					while (count<batchSize && inputIterator.hasNext()) {
+						batch[count++] = inputIterator.next();
+					}
+					if (count == 0) {
+						return false;
+					}
+					if (count < batchSize) {
+						byte[][] partialBatch = new byte[count][];
+						System.arraycopy(batch, 0, partialBatch, 0, count);
+						batch = partialBatch;
+					}
+					derived = function.apply(batch);
+					derivedPosition = 0;
+				}
+				action.accept(derived[derivedPosition++]);
+				return true;
+			}
+		};
+		return StreamSupport.stream(results, false).onClose(input::close);
+	}
+	
+	/** Read hexadecimal private keys from 'input,' one per line, and write the base-58 address of each to 'output,' one per line in the same order. The input file is memory-mapped and processed in large batches, and blank input lines produce blank output lines. Returns the number of addresses written. */
+	public long privateKeysToAddresses(Path input, Path output, boolean compressed) throws IOException {
+		return processPrivateKeyFile(input, output, compressed, null);
+	}
+	
+	/** Read hexadecimal private keys from 'input,' one per line, and write each private key whose public key is in 'watchList' to 'output,' followed by a space and its base-58 address. Keys are checked against the watch list as they are derived, so only the matches are ever encoded. Returns the number of matches written. */
+	public long privateKeysInWatchList(Path input, Path output, boolean compressed, IttyBittyBitcoinWatchList watchList) throws IOException {
+		return processPrivateKeyFile(input, output, compressed, watchList);
+	}
+	
+	/** Shared implementation of privateKeysToAddresses(Path, ...) and privateKeysInWatchList(...), writing every address if 'watchList' is null and only the matches otherwise. */
+	private long processPrivateKeyFile(Path input, Path output, boolean compressed, IttyBittyBitcoinWatchList watchList) throws IOException {
+		long written = 0;
+		try (FileChannel inputChannel = FileChannel.open(input, StandardOpenOption.READ);
+			 Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(output), StandardCharsets.US_ASCII), 1 << 20)) {
+			long fileSize = inputChannel.size();
+			long windowStart = 0;
+			long lineNumber = 1;
+			int[] lineStarts = new int[fileBatchLines];
+			int[] lineEnds   = new int[fileBatchLines];
+			String[] addresses = new String[fileBatchLines];
+			while (windowStart < fileSize) {
+				long windowSize = Math.min(mappedWindowSize, fileSize - windowStart);
+				boolean finalWindow = windowStart + windowSize == fileSize;
+				MappedByteBuffer window = inputChannel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+				
+				// Split the mapped window into complete lines, one batch at a time
+				int position = 0;
+				while (true) {
+					int lineCount = 0;
+					int scan = position;
+					while (lineCount<fileBatchLines && scan<windowSize) {
+						int lineEnd = scan;
+						while (lineEnd<windowSize && window.get(lineEnd)!='\n') {
+							lineEnd++;
+						}
+						
+						// A line cut off by the end of the window is left for the next window, unless this is the end of the file
+						if (lineEnd == windowSize && !finalWindow) {
+							break;
+						}
+						lineStarts[lineCount] = scan;
+						lineEnds  [lineCount] = lineEnd;
+						lineCount++;
+						scan = lineEnd + 1;
+					}
+					if (lineCount == 0) {
+						break;
+					}
+					
+					// Decode, derive, and base-58 encode every line of the batch in parallel
+					final long firstLineNumber = lineNumber;
+					runChunked(lineCount, (from, to) -> {
+						byte[] decoded    = new byte[64];
+						byte[] privateKey = new byte[32];
+						byte[] publicKey  = new byte[20];
+						byte[] address    = new byte[25];
+						for (int i = from; i<to; i++) {
+							int length = decodeHexLine(window, lineStarts[i], lineEnds[i], decoded, firstLineNumber + i);
+							if (length < 0) {
+								addresses[i] = watchList == null ? "" : null;
+								continue;
+							}
+							
+							// Typical 32-byte private keys reuse this worker's buffer, while any other length gets its own array
+							byte[] key;
+							if (length == privateKey.length) {
+								System.arraycopy(decoded, 0, privateKey, 0, length);
+								key = privateKey;
+							} else {
+								key = Arrays.copyOf(decoded, length);
+							}
+							derivePublicKey(key, compressed, publicKey);
+							if (watchList == null) {
+								ibb.publicKeyToAddress(publicKey, 0, address, 0);
+								addresses[i] = ibb.encodeBase58(address);
+							} else if (watchList.contains(publicKey, 0)) {
+								ibb.publicKeyToAddress(publicKey, 0, address, 0);
+								addresses[i] = ibb.encodeHex(key) + " " + ibb.encodeBase58(address);
+							} else {
+								addresses[i] = null;
+							}
+						}
+					});
+					for (int i = 0; i<lineCount; i++) {
+						if (addresses[i] != null) {
+							writer.write(addresses[i]);
+							writer.write('\n');
+							written++;
+						}
+					}
+					lineNumber += lineCount;
+					position = scan;
+					if (position >= windowSize) {
+						break;
+					}
+				}
+				if (position == 0 && !finalWindow) {
+					throw new RuntimeException("Line " + lineNumber + " of input file is too long!");
+				}
+				windowStart += position;
+			}
+		}
+		return written;
+	}
+	
+	/** Decode the hexadecimal private key between 'start' and 'end' in 'window' into 'privateKey,' ignoring surrounding white space. Returns the number of bytes decoded, or -1 if the line is blank. */
+	private static int decodeHexLine(MappedByteBuffer window, int start, int end, byte[] privateKey, long lineNumber) {
+		while (start<end && window.get(start    )<=' ') {
+			start++;
+		}
+		while (end>start && window.get(end - 1  )<=' ') {
+			end--;
+		}
+		if (start == end) {
+			return -1;
+		}
+		int length = (end - start) / 2;
+		if ((end - start) % 2 != 0 || length > privateKey.length) {
+			throw new RuntimeException("Invalid hexadecimal private key on line " + lineNumber + " of input file!");
+		}
+		for (int i = 0; i<length; i++) {
+			int high = Character.digit(window.get(start + 2*i    ), 16);
+			int low  = Character.digit(window.get(start + 2*i + 1), 16);
+			if (high < 0 || low < 0) {
+				throw new RuntimeException("Invalid hexadecimal private key on line " + lineNumber + " of input file!");
+			}
+			privateKey[i] = (byte)((high << 4) | low);
+		}
+		return length;
+	}
+}
@@ -0,0 +1,47 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+
+package com.therealergo.ittybittybitcoin;
+
+/** Big-endian reads of fixed-width words from byte arrays, shared by the hash kernels, the vanity matchers, and the keyset lookup structures that compare public keys as words. */
+class IttyBittyBitcoinBytes {
+	/** Read the 8 bytes at 'offset' in 'value' as a big-endian long. */
+	static long readLong(byte[] value, int offset) {
+		return ((long)(value[offset    ] & 0xFF) << 56) |
+			   ((long)(value[offset + 1] & 0xFF) << 48) |
+			   ((long)(value[offset + 2] & 0xFF) << 40) |
+			   ((long)(value[offset + 3] & 0xFF) << 32) |
+			   ((long)(value[offset + 4] & 0xFF) << 24) |
+			   ((long)(value[offset + 5] & 0xFF) << 16) |
+			   ((long)(value[offset + 6] & 0xFF) <<  8) |
+			   ((long)(value[offset + 7] & 0xFF)      );
+	}
+	
+	/** Read the 4 bytes at 'offset' in 'value' as a big-endian int. */
+	static int readInt(byte[] value, int offset) {
+		return ((value[offset    ] & 0xFF) << 24) |
+			   ((value[offset + 1] & 0xFF) << 16) |
+			   ((value[offset + 2] & 0xFF) <<  8) |
+			   ((value[offset + 3] & 0xFF)      );
+	}
+}
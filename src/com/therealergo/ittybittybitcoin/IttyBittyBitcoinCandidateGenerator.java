@@ -0,0 +1,156 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.math.BigInteger;
+
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.math.ec.ECFieldElement;
+import org.bouncycastle.math.ec.ECPoint;
+
+/** Generates batches of consecutive candidate keypairs k, k+1, k+2, ... by repeatedly adding the generator point G, rather than performing a full scalar multiplication for every private key. Each batch is converted from Jacobian to affine coordinates with a single shared modular inversion. Instances are not thread-safe, and are intended to be used by one worker thread each. */
+public class IttyBittyBitcoinCandidateGenerator {
+	/** Number of keypairs derived from each candidate by getEncodedVariants(...): the candidate k itself, its endomorphism images lambda * k and lambda^2 * k, and the negation of each of those three. */
+	public static final int variantCount = 6;
+	
+	/** The cube root of unity beta mod p of secp256k1's endomorphism, which maps the point (x, y) to (beta * x, y). */
+	static final BigInteger endomorphismBeta   = new BigInteger("7AE96A2B657C07106E64479EAC3434E99CF0497512F58995C1396C28719501EE", 16);
+	/** The cube root of unity lambda mod n of secp256k1's endomorphism, where lambda * (x, y) = (beta * x, y). */
+	static final BigInteger endomorphismLambda = new BigInteger("5363AD4CC05C30E0A5261C028812645A122E22EA20816678DF02967C1B23BD72", 16);
+	
+	/** The domain instance holding the parameters of the secp256k1 curve. */
+	private final ECDomainParameters domain;
+	/** The generator point G, which is added to step from each candidate to the next. */
+	private final ECPoint            generator;
+	/** The endomorphism's beta as a field element, by which x coordinates are multiplied. */
+	private final ECFieldElement     beta;
+	
+	/** The public points of the current batch, in affine coordinates once nextBatch() has returned. */
+	private final ECPoint[]  points;
+	/** The private key of the first point in the current batch. */
+	private       BigInteger batchKey;
+	/** The private key of the first point in the next batch. */
+	private       BigInteger nextKey;
+	/** The public point of the first point in the next batch, in Jacobian coordinates. */
+	private       ECPoint    nextPoint;
+	
+	/** Create a new candidate generator whose first candidate is the given private key, generating 'batchSize' candidates per call to nextBatch(). */
+	public IttyBittyBitcoinCandidateGenerator(byte[] startKey, int batchSize) {
+		if (batchSize < 1) {
+			throw new RuntimeException("Candidate batch size must be at least 1.");
+		}
+		this.domain    = IttyBittyBitcoin.getSharedDomain();
+		this.generator = domain.getG().normalize();
+		this.beta      = domain.getCurve().fromBigInteger(endomorphismBeta);
+		this.points    = new ECPoint[batchSize];
+		
+		// Only the starting point requires a full scalar multiplication
+		this.nextKey   = new BigInteger(1, startKey).mod(domain.getN());
+		this.nextPoint = IttyBittyBitcoin.multiplyGenerator(nextKey);
+	}
+	
+	/** Advance to the next batch of consecutive candidates. After this returns, getPoint(...) and getPrivateKey(...) describe the new batch. */
+	public void nextBatch() {
+		batchKey = nextKey;
+		
+		// Walk forward one candidate at a time, using a single point addition for each step
+		ECPoint point = nextPoint;
+		for (int i = 0; i<points.length; i++) {
+			points[i] = point;
+			point = point.add(generator);
+		}
+		nextPoint = point;
+		nextKey   = batchKey.add(BigInteger.valueOf(points.length)).mod(domain.getN());
+		
+		// Convert the whole batch to affine coordinates, sharing one modular inversion between every point
+		domain.getCurve().normalizeAll(points);
+	}
+	
+	/** Returns the number of candidates generated by each call to nextBatch(). */
+	public int getBatchSize() {
+		return points.length;
+	}
+	
+	/** Returns the affine public point of candidate 'index' in the current batch. This is the point at infinity only when the candidate's private key is 0, and such a candidate should be skipped. */
+	public ECPoint getPoint(int index) {
+		return points[index];
+	}
+	
+	/** Returns the encoded public point of candidate 'index' in the current batch, in the same form as privateKeyToPublicPoint(...) returns. */
+	public byte[] getEncodedPoint(int index, boolean compressed) {
+		return points[index].getEncoded(compressed);
+	}
+	
+	/** Returns the 32-byte private key of candidate 'index' in the current batch. */
+	public byte[] getPrivateKey(int index) {
+		return toPrivateKeyBytes(batchKey.add(BigInteger.valueOf(index)).mod(domain.getN()));
+	}
+	
+	/** Encode every variant of candidate 'index' in the current batch in both forms, writing the compressed encoding of variant v to encodedPoints[offset + 2 * v] and the uncompressed encoding to encodedPoints[offset + 2 * v + 1]. Variant 2 * e + s has the x coordinate beta^e * x, and is negated if s is 1. The candidate must not be the point at infinity. */
+	public void getEncodedVariants(int index, byte[][] encodedPoints, int offset) {
+		// The three x coordinates are x, beta * x, and beta^2 * x = -(x + beta * x), since 1 + beta + beta^2 = 0
+		ECPoint point = points[index];
+		ECFieldElement x     = point.getAffineXCoord();
+		ECFieldElement betaX = x.multiply(beta);
+		byte[][] xEncoded = new byte[][]{x.getEncoded(), betaX.getEncoded(), x.add(betaX).negate().getEncoded()};
+		
+		// Negating a point negates y, which also flips the parity of y because p is odd
+		ECFieldElement y = point.getAffineYCoord();
+		byte[][] yEncoded = new byte[][]{y.getEncoded(), y.negate().getEncoded()};
+		boolean yOdd = y.testBitZero();
+		for (int v = 0; v<variantCount; v++) {
+			byte[] xVariant = xEncoded[v >>> 1];
+			int negated = v & 1;
+			
+			byte[] compressedPoint = new byte[33];
+			compressedPoint[0] = (byte)(yOdd ^ (negated == 1) ? 0x03 : 0x02);
+			System.arraycopy(xVariant, 0, compressedPoint, 1, 32);
+			encodedPoints[offset + 2 * v] = compressedPoint;
+			
+			byte[] uncompressedPoint = new byte[65];
+			uncompressedPoint[0] = 0x04;
+			System.arraycopy(xVariant         , 0, uncompressedPoint,  1, 32);
+			System.arraycopy(yEncoded[negated], 0, uncompressedPoint, 33, 32);
+			encodedPoints[offset + 2 * v + 1] = uncompressedPoint;
+		}
+	}
+	
+	/** Returns the 32-byte private key of the given variant of candidate 'index' in the current batch, as encoded by getEncodedVariants(...). Variant 2 * e + s has the private key (-1)^s * lambda^e * k, where k is the candidate's own private key. */
+	public byte[] getVariantPrivateKey(int index, int variant) {
+		BigInteger n = domain.getN();
+		BigInteger privateKey = batchKey.add(BigInteger.valueOf(index)).multiply(endomorphismLambda.modPow(BigInteger.valueOf(variant >>> 1), n));
+		if ((variant & 1) != 0) {
+			privateKey = privateKey.negate();
+		}
+		return toPrivateKeyBytes(privateKey.mod(n));
+	}
+	
+	/** Convert the given non-negative private key into an unsigned, 32-byte, big-endian array of bytes. */
+	static byte[] toPrivateKeyBytes(BigInteger privateKey) {
+		byte[] signedBytes = privateKey.toByteArray();
+		byte[] privateKeyBytes = new byte[32];
+		int length = Math.min(signedBytes.length, 32);
+		System.arraycopy(signedBytes, signedBytes.length - length, privateKeyBytes, 32 - length, length);
+		return privateKeyBytes;
+	}
+}
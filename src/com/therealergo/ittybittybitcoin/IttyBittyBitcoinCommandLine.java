@@ -22,9 +22,18 @@
 
 package com.therealergo.ittybittybitcoin;
 
+import java.io.IOException;
+import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class IttyBittyBitcoinCommandLine {
 	/** Convert the given String into a boolean, throwing an error if the String is not in the right form to be converted. */
@@ -38,6 +47,478 @@ public class IttyBittyBitcoinCommandLine {
 		throw new RuntimeException("Unrecognized boolean input: '" + value + "'.");
 	}
 	
+	/** Convert the given String into a worker thread count, throwing an error if the String is not a positive integer. */
+	private static int decodeThreadCount(String value) {
+		int threadCount;
+		try {
+			threadCount = Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new RuntimeException("Unrecognized thread count input: '" + value + "'.", e);
+		}
+		if (threadCount < 1) {
+			throw new RuntimeException("Thread count must be at least 1: '" + value + "'.");
+		}
+		return threadCount;
+	}
+	
+	/** Convert the given String into a number of keypairs to generate, throwing an error if the String is not a positive integer. */
+	private static long decodeKeypairCount(String value) {
+		long count;
+		try {
+			count = Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new RuntimeException("Unrecognized keypair count input: '" + value + "'.", e);
+		}
+		if (count < 1) {
+			throw new RuntimeException("Keypair count must be at least 1: '" + value + "'.");
+		}
+		return count;
+	}
+	
+	/** Convert the given number of seconds into a short human-readable duration, such as '3h 25m' or '41s'. */
+	private static String formatDuration(double seconds) {
+		if (Double.isInfinite(seconds) || Double.isNaN(seconds)) {
+			return "unknown";
+		}
+		long total = (long)Math.ceil(seconds);
+		if (total >= 365L * 86400L) {
+			return String.format("%.1f years", total / (365.0 * 86400.0));
+		}
+		if (total >= 86400L) {
+			return (total / 86400L) + "d " + (total % 86400L / 3600L) + "h";
+		}
+		if (total >= 3600L) {
+			return (total / 3600L) + "h " + (total % 3600L / 60L) + "m";
+		}
+		if (total >= 60L) {
+			return (total / 60L) + "m " + (total % 60L) + "s";
+		}
+		return total + "s";
+	}
+	
+	/** Break up the given line of input into a list of arguments, separated by white space. */
+	public static String[] tokenize(String line) {
+		ArrayList<String> args = new ArrayList<String>();
+		StringBuilder currentArg = new StringBuilder();
+		for (int pos = 0; pos<=line.length(); pos++) {
+			// The end of the line also ends the last argument
+			if (pos == line.length() || Character.isWhitespace(line.charAt(pos))) {
+				if (currentArg.length()>0) {
+					args.add(currentArg.toString());
+					currentArg.setLength(0);
+				}
+			} else {
+				currentArg.append(line.charAt(pos));
+			}
+		}
+		return args.toArray(new String[args.size()]);
+	}
+	
+	/** Perform the single command given by 'args,' printing its output to 'out.' Returns false if the command was not recognized, and throws an exception if it fails. Interactive mode and daemon mode are handled by main(...), since they control how further commands are read. */
+	public static boolean execute(IttyBittyBitcoin ibb, String[] args, PrintStream out) {
+		// Perform each command if applicable
+		if (args.length == 2 && (args[0].equals("checksum") || args[0].equals("-"))) {
+			out.println("Computed checksum: " + ibb.encodeHex(ibb.checksum(ibb.decodeHex(args[1]))));
+		} else if (args.length == 3 && (args[0].equals("privateKeyToPublicPoint") || args[0].equals("kp"))) {
+			out.println("Public point: " + ibb.encodeHex(ibb.privateKeyToPublicPoint(ibb.decodeHex(args[1]), decodeBoolean(args[2]))));
+		} else if (args.length == 2 && (args[0].equals("publicPointToPublicKey") || args[0].equals("pK"))) {
+			out.println("Public key: " + ibb.encodeHex(ibb.publicPointToPublicKey(ibb.decodeHex(args[1]))));
+		} else if (args.length == 2 && (args[0].equals("publicKeyToAddress") || args[0].equals("Ka"))) {
+			out.println("Address: " + ibb.encodeBase58(ibb.publicKeyToAddress(ibb.decodeHex(args[1]))));
+		} else if (args.length == 2 && (args[0].equals("publicPointToAddress") || args[0].equals("pa"))) {
+			out.println(ibb.encodeBase58(ibb.publicPointToAddress(ibb.decodeHex(args[1]))));
+		} else if (args.length == 3 && (args[0].equals("privateKeyToPublicKey") || args[0].equals("kK"))) {
+			out.println("Public key: " + ibb.encodeHex(ibb.privateKeyToPublicKey(ibb.decodeHex(args[1]), decodeBoolean(args[2]))));
+		} else if (args.length == 3 && (args[0].equals("privateKeyToAddress") || args[0].equals("ka"))) {
+			out.println("Address: " + ibb.encodeBase58(ibb.privateKeyToAddress(ibb.decodeHex(args[1]), decodeBoolean(args[2]))));
+		} else if (args.length == 2 && (args[0].equals("generateRandom") || args[0].equals("gR"))) {
+			out.println("Generating random keyset...");
+			byte[] privateKey = ibb.generateRandomPrivateKey();
+			out.println("Generated private key: " + ibb.encodeHex(privateKey));
+			out.println("Generated key's address: " + ibb.encodeBase58(ibb.privateKeyToAddress(privateKey, decodeBoolean(args[1]))));
+		} else if (args.length == 3 && (args[0].equals("generateRandom") || args[0].equals("gR"))) {
+			long count = decodeKeypairCount(args[2]);
+			int threadCount = Runtime.getRuntime().availableProcessors();
+			try {
+				// Stream each batch out as soon as it is minted, as one "private key, address" line per keyset
+				new IttyBittyBitcoinKeyGenerator(ibb, threadCount, 1024).generate(count, decodeBoolean(args[1]), (privateKeys, addresses, batchCount) -> {
+					StringBuilder lines = new StringBuilder(batchCount * 100);
+					byte[] privateKey = new byte[32];
+					byte[] address    = new byte[25];
+					for (int i = 0; i<batchCount; i++) {
+						System.arraycopy(privateKeys, 32 * i, privateKey, 0, 32);
+						System.arraycopy(addresses  , 25 * i, address   , 0, 25);
+						lines.append(ibb.encodeHex(privateKey)).append(' ').append(ibb.encodeBase58(address)).append('\n');
+					}
+					out.print(lines);
+				});
+			} catch (InterruptedException e) { throw new RuntimeException("Interrupted!", e); }
+		} else if (args.length == 3 && (args[0].equals("generateFromHash") || args[0].equals("gH"))) {
+			out.println("Generating keyset from hash...");
+			byte[] privateKey = ibb.decodeHex(args[1]);
+			out.println("Generated private key: " + ibb.encodeHex(privateKey));
+			out.println("Generated key's address: " + ibb.encodeBase58(ibb.privateKeyToAddress(privateKey, decodeBoolean(args[2]))));
+		} else if (args.length == 4 && (args[0].equals("generateFromStringSHA256") || args[0].equals("gS"))) {
+			out.println("Generating keyset from SHA-256 hashed String...");
+			try {
+				byte[] privateKey = ibb.hashSHA256(args[1].replace("\\n", "\n").replace("\\t", "\t").replace("\\s", " ").replace("\\\\", "\\").getBytes(args[2]));
+				out.println("Generated private key: " + ibb.encodeHex(privateKey));
+				out.println("Generated key's address: " + ibb.encodeBase58(ibb.privateKeyToAddress(privateKey, decodeBoolean(args[3]))));
+			} catch (UnsupportedEncodingException e) { throw new RuntimeException("Unsupported Encoding!", e); }
+		} else if ((args.length == 3 || args.length == 4) && (args[0].equals("findVanityAddress") || args[0].equals("v"))) {
+			int threadCount = args.length == 4 ? decodeThreadCount(args[3]) : Runtime.getRuntime().availableProcessors();
+			boolean allVariants = args[2].equals("all");
+			IttyBittyBitcoinVanitySearch search = new IttyBittyBitcoinVanitySearch(args[1], allVariants || decodeBoolean(args[2]), allVariants, threadCount, (s) -> {
+				if (!s.isDone()) {
+					IttyBittyBitcoinVanityStats stats = s.getStats();
+					out.println("Searched " + s.getCandidatesTried() + " candidates (" + (long)s.getKeysPerSecond() + " keys/sec, " + String.format("%.1f", 100.0 * stats.getProbabilityFound()) + "% chance found, expected wait " + formatDuration(stats.getEstimatedSecondsRemaining()) + ", 90% likely within " + formatDuration(stats.getEstimatedSecondsToProbability(0.9)) + ")...");
+				}
+			}, 5000);
+			out.println("Searching for vanity " + search.getMode() + " using " + threadCount + " thread(s), expecting to test about " + String.format("%.0f", search.getStats().getDifficulty()) + " candidates...");
+			search.start().registerMBean();
+			byte[] privateVanity;
+			try {
+				privateVanity = search.get();
+			} catch (InterruptedException e) { search.cancel(true); throw new RuntimeException("Interrupted!", e); } catch (ExecutionException e) { throw new RuntimeException("Vanity search failed!", e.getCause()); }
+			IttyBittyBitcoinVanityStats stats = search.getStats();
+			out.println("Searched " + search.getCandidatesTried() + " candidates in " + formatDuration(search.getElapsedSeconds()) + " (" + (long)search.getKeysPerSecond() + " keys/sec).");
+			out.println("Time per candidate: " + String.format("EC %.0f ns, SHA-256 %.0f ns, RIPEMD-160 %.0f ns, match %.0f ns", stats.getEcMultiplyNanosPerCandidate(), stats.getSha256NanosPerCandidate(), stats.getRipemd160NanosPerCandidate(), stats.getMatchNanosPerCandidate()) + ".");
+			out.println("Vanity address found!");
+			out.println("Vanity address private key: " + ibb.encodeHex(privateVanity));
+			if (allVariants) {
+				out.println("Vanity address point compressed: " + search.isResultCompressed());
+			}
+			out.println("Vanity address: " + ibb.encodeBase58(ibb.privateKeyToAddress(privateVanity, search.isResultCompressed())));
+		} else if ((args.length == 3 || args.length == 4) && (args[0].equals("findVanityAddresses") || args[0].equals("mv"))) {
+			ArrayList<String> vanities = new ArrayList<String>();
+			try {
+				for (String line : Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+					if (!line.trim().isEmpty()) {
+						vanities.add(line.trim());
+					}
+				}
+			} catch (IOException e) { throw new RuntimeException("Unable to read vanity file!", e); }
+			int threadCount = args.length == 4 ? decodeThreadCount(args[3]) : Runtime.getRuntime().availableProcessors();
+			out.println("Searching for " + vanities.size() + " vanity addresses using " + threadCount + " thread(s)...");
+			IttyBittyBitcoinMultiVanitySearch search = new IttyBittyBitcoinMultiVanitySearch(vanities, decodeBoolean(args[2]), threadCount, true, (s, vanity, privateKey, address) -> {
+				out.println("Found vanity address for '" + vanity + "': " + address + " (private key " + ibb.encodeHex(privateKey) + ")");
+			}, (s) -> {
+				if (!s.isDone()) {
+					out.println("Searched " + s.getCandidatesTried() + " candidates (" + (long)s.getKeysPerSecond() + " keys/sec), found " + s.getVanityFoundCount() + " of " + s.getVanityCount() + "...");
+				}
+			}, 5000).start();
+			try {
+				search.await();
+			} catch (InterruptedException e) { search.cancel(); throw new RuntimeException("Interrupted!", e); } catch (ExecutionException e) { throw new RuntimeException("Vanity search failed!", e.getCause()); }
+			out.println("All " + search.getVanityCount() + " vanity addresses found after searching " + search.getCandidatesTried() + " candidates in " + formatDuration(search.getElapsedSeconds()) + ".");
+		} else if ((args.length == 5 || args.length == 6) && (args[0].equals("partitionedVanity") || args[0].equals("pv"))) {
+			Path directory = Paths.get(args[1]);
+			int processCount = decodeThreadCount(args[4]);
+			int threadsPerProcess = args.length == 6 ? decodeThreadCount(args[5]) : Math.max(Runtime.getRuntime().availableProcessors() / processCount, 1);
+			try {
+				// Resume the search already in the directory, if there is one
+				IttyBittyBitcoinPartitionedSearch search;
+				if (IttyBittyBitcoinPartitionedSearch.exists(directory)) {
+					search = IttyBittyBitcoinPartitionedSearch.open(ibb, directory);
+					if (!search.getVanity().equals(args[2]) || search.isCompressed() != decodeBoolean(args[3])) {
+						throw new RuntimeException("Unable to resume partitioned search: Directory holds a search for a different vanity String!");
+					}
+					out.println("Resuming partitioned search after " + search.getCandidatesTried() + " candidates...");
+				} else {
+					search = IttyBittyBitcoinPartitionedSearch.create(ibb, directory, args[2], decodeBoolean(args[3]));
+				}
+				out.println("Searching for vanity address using " + processCount + " worker process(es) of " + threadsPerProcess + " partition(s) each...");
+				Process[] processes = search.startLocalWorkers(processCount, threadsPerProcess);
+				
+				// Watch the directory until a hit appears or every worker has exited
+				long startTime = System.nanoTime();
+				long startTried = search.getCandidatesTried();
+				try {
+					for (int poll = 1; !search.hasHits(); poll++) {
+						boolean running = false;
+						for (Process process : processes) {
+							running |= process.isAlive();
+						}
+						if (!running) {
+							break;
+						}
+						Thread.sleep(1000);
+						if (poll % 5 == 0) {
+							long tried = search.getCandidatesTried();
+							out.println("Searched " + tried + " candidates (" + (long)((tried - startTried) / ((System.nanoTime() - startTime) / 1.0E9)) + " keys/sec)...");
+						}
+					}
+					
+					// Give the workers time to notice the hit and write their final checkpoints
+					for (Process process : processes) {
+						if (!process.waitFor(30, TimeUnit.SECONDS)) {
+							process.destroy();
+						}
+					}
+				} catch (InterruptedException e) {
+					for (Process process : processes) {
+						process.destroy();
+					}
+					throw new RuntimeException("Interrupted!", e);
+				}
+				List<String> hits = search.getHits();
+				if (hits.isEmpty()) {
+					throw new RuntimeException("Worker processes exited without finding a vanity address! See the worker logs in " + directory + ".");
+				}
+				for (String hit : hits) {
+					String[] parts = hit.split(" ");
+					out.println("Vanity address found by partition " + parts[0] + "!");
+					out.println("Vanity address private key: " + parts[1]);
+					out.println("Vanity address: " + parts[2]);
+				}
+			} catch (IOException e) { throw new RuntimeException("Unable to read or write partitioned search directory!", e); }
+		} else if ((args.length == 3 || args.length == 4) && (args[0].equals("partitionWorker") || args[0].equals("pw"))) {
+			int threadCount = args.length == 4 ? decodeThreadCount(args[3]) : Runtime.getRuntime().availableProcessors();
+			try {
+				IttyBittyBitcoinPartitionedSearch search = IttyBittyBitcoinPartitionedSearch.open(ibb, Paths.get(args[1]));
+				out.println("Worker '" + args[2] + "' searching for vanity address '" + search.getVanity() + "' using " + threadCount + " partition(s)...");
+				byte[] privateVanity = search.runWorker(args[2], threadCount, 10000);
+				if (privateVanity == null) {
+					out.println("Vanity address was found by another worker.");
+				} else {
+					out.println("Vanity address found!");
+					out.println("Vanity address private key: " + ibb.encodeHex(privateVanity));
+					out.println("Vanity address: " + ibb.encodeBase58(ibb.privateKeyToAddress(privateVanity, search.isCompressed())));
+				}
+			} catch (IOException e) { throw new RuntimeException("Unable to read or write partitioned search directory!", e); }
+		} else if (args.length == 2 && (args[0].equals("vanityDifficulty") || args[0].equals("vd"))) {
+			IttyBittyBitcoinVanityMatcher matcher = IttyBittyBitcoinVanityMatcher.compile(ibb, args[1]);
+			out.println("Vanity " + matcher.getMode() + " difficulty: " + String.format("%.0f", matcher.getDifficulty()) + " candidates expected (" + String.format("%.3g", matcher.getProbability()) + " chance per candidate).");
+		} else if (args.length == 4 && (args[0].equals("batchPrivateKeyToAddress") || args[0].equals("bka"))) {
+			out.println("Deriving addresses from private key file...");
+			long startTime = System.nanoTime();
+			try {
+				long derived = new IttyBittyBitcoinBatch(ibb).privateKeysToAddresses(Paths.get(args[1]), Paths.get(args[2]), decodeBoolean(args[3]));
+				out.println("Derived " + derived + " addresses in " + ((System.nanoTime() - startTime) / 1000000L) + " ms.");
+			} catch (IOException e) { throw new RuntimeException("Unable to read private key file or write address file!", e); }
+		} else if (args.length == 4 && (args[0].equals("buildWatchList") || args[0].equals("bW"))) {
+			out.println("Building watch list...");
+			long startTime = System.nanoTime();
+			try {
+				IttyBittyBitcoinWatchList watchList = IttyBittyBitcoinWatchList.build(ibb, Paths.get(args[1]), Paths.get(args[2]), Integer.parseInt(args[3]));
+				out.println("Built watch list of " + watchList.getEntryCount() + " public keys (" + (watchList.getSlotCount() * 20 + watchList.getBloomBits() / 8) / 1024 + " KiB) in " + ((System.nanoTime() - startTime) / 1000000L) + " ms.");
+			} catch (IOException e) { throw new RuntimeException("Unable to read address file or write watch list file!", e); }
+		} else if (args.length == 3 && (args[0].equals("watchListContains") || args[0].equals("wC"))) {
+			try {
+				out.println("On watch list: " + IttyBittyBitcoinWatchList.load(Paths.get(args[1])).containsAddress(ibb, args[2]));
+			} catch (IOException e) { throw new RuntimeException("Unable to load watch list file!", e); }
+		} else if (args.length == 5 && (args[0].equals("batchWatchList") || args[0].equals("bkw"))) {
+			out.println("Checking private key file against watch list...");
+			long startTime = System.nanoTime();
+			try {
+				IttyBittyBitcoinWatchList watchList = IttyBittyBitcoinWatchList.load(Paths.get(args[1]));
+				long found = new IttyBittyBitcoinBatch(ibb).privateKeysInWatchList(Paths.get(args[2]), Paths.get(args[3]), decodeBoolean(args[4]), watchList);
+				out.println("Found " + found + " watched addresses in " + ((System.nanoTime() - startTime) / 1000000L) + " ms.");
+			} catch (IOException e) { throw new RuntimeException("Unable to read watch list or private key file, or write output file!", e); }
+		} else if (args.length == 3 && (args[0].equals("importKeysets") || args[0].equals("iK"))) {
+			out.println("Importing keysets...");
+			try (IttyBittyBitcoinKeysetStore store = new IttyBittyBitcoinKeysetStore(Paths.get(args[2]))) {
+				out.println("Imported " + store.importText(ibb, Paths.get(args[1])) + " keysets, " + store.getRecordCount() + " in store.");
+			} catch (IOException e) { throw new RuntimeException("Unable to read keyset file or write keyset store!", e); }
+		} else if (args.length == 3 && (args[0].equals("exportKeysets") || args[0].equals("eK"))) {
+			out.println("Exporting keysets...");
+			try (IttyBittyBitcoinKeysetStore store = new IttyBittyBitcoinKeysetStore(Paths.get(args[1]))) {
+				out.println("Exported " + store.exportText(ibb, Paths.get(args[2])) + " keysets.");
+			} catch (IOException e) { throw new RuntimeException("Unable to read keyset store or write keyset file!", e); }
+		} else if (args.length == 3 && (args[0].equals("lookupKeyset") || args[0].equals("lK"))) {
+			try (IttyBittyBitcoinKeysetStore store = new IttyBittyBitcoinKeysetStore(Paths.get(args[1]))) {
+				long record = store.findAddress(ibb, args[2]);
+				if (record < 0) {
+					out.println("Address not in keyset store.");
+				} else {
+					out.println("Private key: " + ibb.encodeHex(store.getPrivateKey(record)));
+					out.println("Point compressed: " + store.isCompressed(record));
+				}
+			} catch (IOException e) { throw new RuntimeException("Unable to read keyset store!", e); }
+		} else if (args.length == 3 && (args[0].equals("buildFixedBaseTable") || args[0].equals("bT"))) {
+			int windowBits = Integer.parseInt(args[2]);
+			out.println("Building " + windowBits + "-bit fixed-base table (" + IttyBittyBitcoinFixedBaseTable.estimateSize(windowBits) / 1024 + " KiB)...");
+			IttyBittyBitcoinFixedBaseTable table = IttyBittyBitcoinFixedBaseTable.build(windowBits);
+			try {
+				table.save(Paths.get(args[1]));
+			} catch (IOException e) { throw new RuntimeException("Unable to write fixed-base table file!", e); }
+			IttyBittyBitcoin.useFixedBaseTable(table);
+			out.println("Fixed-base table saved and in use.");
+		} else if (args.length == 2 && (args[0].equals("loadFixedBaseTable") || args[0].equals("lT"))) {
+			try {
+				IttyBittyBitcoin.useFixedBaseTable(IttyBittyBitcoinFixedBaseTable.load(Paths.get(args[1])));
+			} catch (IOException e) { throw new RuntimeException("Unable to read fixed-base table file!", e); }
+			out.println("Fixed-base table loaded and in use.");
+		} else if ((args.length == 1 || args.length == 2) && (args[0].equals("derivationCache") || args[0].equals("dC"))) {
+			IttyBittyBitcoinDerivationCache cache = IttyBittyBitcoin.getDerivationCache();
+			if (cache != null) {
+				out.println("Derivation cache: " + cache.getSize() + " / " + cache.getMaxEntries() + " entries, " + cache.getHits() + " hits, " + cache.getMisses() + " misses, " + cache.getEvictions() + " evictions (" + String.format("%.1f", cache.getHitRate() * 100.0) + "% hit rate).");
+			} else {
+				out.println("Derivation cache: not in use.");
+			}
+			if (args.length == 2) {
+				int maxEntries = Integer.parseInt(args[1]);
+				if (cache != null) {
+					cache.clear();
+				}
+				IttyBittyBitcoin.useDerivationCache(maxEntries > 0 ? new IttyBittyBitcoinDerivationCache(maxEntries) : null);
+				out.println(maxEntries > 0 ? "Derivation cache of " + maxEntries + " entries now in use." : "Derivation cache disabled.");
+			}
+		} else if (args.length == 2 && (args[0].equals("encodeBase58") || args[0].equals("eB"))) {
+			out.println("Base-58 encoded value: " + ibb.encodeBase58(ibb.decodeHex(args[1])));
+		} else if (args.length == 2 && (args[0].equals("encodeHex") || args[0].equals("eH"))) {
+			out.println("Hexadecimal encoded value: " + ibb.encodeHex(ibb.decodeBase58(args[1])));
+		} else if (args.length == 1 && (args[0].equals("version") || args[0].equals("V"))) {
+			out.println("Current IttyBittyBitcoin version: V" + IttyBittyBitcoin.version + ".");
+		} else if (args.length == 1 && (args[0].equals("performTests") || args[0].equals("t"))) {
+			out.println(ibb.performTests());
+		} else if ((args.length == 1 || args.length == 2) && (args[0].equals("performConcurrencyTests") || args[0].equals("T"))) {
+			out.println(ibb.performConcurrencyTests(args.length == 2 ? decodeThreadCount(args[1]) : Runtime.getRuntime().availableProcessors(), 2000));
+		} else if (args.length == 1 && (args[0].equals("help") || args[0].equals("Help") || args[0].equals("?") || args[0].equals("/?") || args[0].equals("-?") || args[0].equals("h") || args[0].equals("H"))) {
+			out.println("IttyBittyBitcoin");
+			out.println("------------");
+			out.println("	IttyBittyBitcoin is a set of free open-source cross-platform Java tools for working with bitcoin addresses. It can either be used as a library or run from the command line. It is MIT-licensed, and its only dependency is the BouncyCastle crypto library.");
+			out.println("Command reference: ");
+			out.println("------------");
+			out.println("['checksum'                 or 'c' ] <a>");
+			out.println("    <a>: Hexadecimal input: Value to compute checksum of.");
+			out.println("    Compute checksum of the given value, which is the last 4 bytes of the result of SHA-256 hashing the value twice.");
+			out.println("['privateKeyToPublicPoint'  or 'kp'] <a> <b>");
+			out.println("    <a>: Hexadecimal input: Private key.");
+			out.println("    <b>: Boolean     input: Point compressed?");
+			out.println("    Compute the public point that this private key represents. This point is used to compute the public key and address.");
+			out.println("['publicPointToPublicKey'   or 'pK'] <a>");
+			out.println("    <a>: Hexadecimal input: Public point.");
+			out.println("    Compute the SHA-256 hash followed by the RIME MD-160 hash of the given value, turning the given public point into a public key.");
+			out.println("['publicKeyToAddress'       or 'Ka'] <a>");
+			out.println("    <a>: Hexadecimal input: Public key.");
+			out.println("    Compute the address that is represented by the given public key. This is the number which, when encoded in base-58, is used to publicly identify this bitcoin wallet.");
+			out.println("['publicPointToAddress'     or 'pa'] <a>");
+			out.println("    <a>: Hexadecimal input: Public point.");
+			out.println("    Convenience function successively calling publicKeyToAddress <...> and publicPointToPublicKey <...>. See those for documentation.");
+			out.println("['privateKeyToPublicKey'    or 'kK'] <a> <b>");
+			out.println("    <a>: Hexadecimal input: Private key.");
+			out.println("    <b>: Boolean     input: Point compressed?");
+			out.println("    Convenience function successively calling publicPointToPublicKey <...> and privateKeyToPublicPoint <...>. See those for documentation.");
+			out.println("['privateKeyToAddress'      or 'ka'] <a> <b>");
+			out.println("    <a>: Hexadecimal input: Private key.");
+			out.println("    <b>: Boolean     input: Point compressed?");
+			out.println("    Convenience function successively calling publicKeyToAddress <...>, publicPointToPublicKey <...>, and privateKeyToPublicPoint <...>. See those for documentation.");
+			out.println("['generateRandom'           or 'gR'] <a> [b]");
+			out.println("    <a>: Boolean     input: Point compressed?");
+			out.println("    [b]: Integer     input: Optional number of keypairs to create. If given, each keypair is printed as its hexadecimal private key and base-58 address on one line, streamed out as they are created on every available processor.");
+			out.println("    Creates a new randomly-generated keypair, using a DRBG seeded from SecureRandom.");
+			out.println("['generateFromHash'         or 'gH'] <a> <b>");
+			out.println("    <a>: Hexadecimal input: Hash value, typically 256-bit.");
+			out.println("    <b>: Boolean     input: Point compressed?");
+			out.println("    Creates a keypair from the given hash value.");
+			out.println("['generateFromStringSHA256' or 'gS'] <a> <b> <c>");
+			out.println("    <a>: String      input: String to be hashed. '\\s' will escape as a space character, '\\n' will escape as a newline character, and '\\t' will escape as a tab character. '\\\\' can be used to escape a backslash.");
+			out.println("    <a>: String      input: Charset of string to be hashed. Typically one of 'US-ASCII' or 'UTF-8'.");
+			out.println("    <c>: Boolean     input: Point compressed?");
+			out.println("    Creates a keypair from the SHA-256 hash value of the given String.");
+			out.println("['findVanityAddress'        or 'v' ] <a> <b> [c]");
+			out.println("    <a>: String      input: Vanity pattern to search for: a prefix such as '1abc,' a suffix such as '*xyz,' or a wildcard pattern such as '1ab*x?z' over the whole address, where '?' matches any one character and '*' any run. Add '/i' to ignore case. Quote patterns holding '*' or '?' in a shell.");
+			out.println("    <b>: Boolean     input: Point compressed? Or 'all' to search both forms of every point, its negation, and its two endomorphism images, which tests 12 addresses per point computed.");
+			out.println("    [c]: Integer     input: Optional number of worker threads. Defaults to the number of available processors.");
+			out.println("    Find a vanity Bitcoin address, which will match the given pattern. This is done probabilistically, and can take enormous amounts of time and CPU for longer vanity Strings.");
+			out.println("    Progress, with the chance of having found the address, the expected wait for a match, and the time within which one is 90% likely, is printed every 5 seconds. The search can also be watched over JMX.");
+			out.println("['findVanityAddresses'      or 'mv'] <a> <b> [c]");
+			out.println("    <a>: String      input: Path of the file to read vanity strings from, one per line.");
+			out.println("    <b>: Boolean     input: Point compressed?");
+			out.println("    [c]: Integer     input: Optional number of worker threads. Defaults to the number of available processors.");
+			out.println("    Find a vanity Bitcoin address for every String in a file at once, testing each candidate against all of them. Each address is printed as soon as it is found, and the search ends once every String has been found.");
+			out.println("['partitionedVanity'        or 'pv'] <a> <b> <c> <d> [e]");
+			out.println("    <a>: String      input: Path of the directory to keep the search's state in. Rerunning with the same directory resumes the search.");
+			out.println("    <b>: String      input: Vanity pattern to search for, as for findVanityAddress <...>.");
+			out.println("    <c>: Boolean     input: Point compressed?");
+			out.println("    <d>: Integer     input: Number of worker processes to start on this machine.");
+			out.println("    [e]: Integer     input: Optional number of partitions per worker process. Defaults to the number of available processors divided by the number of processes.");
+			out.println("    Find a vanity Bitcoin address with a deterministic search split into disjoint partitions of the keyspace, checkpointed every 10 seconds so that it can resume after a crash. Other machines sharing the directory can join with partitionWorker <...>.");
+			out.println("['partitionWorker'          or 'pw'] <a> <b> [c]");
+			out.println("    <a>: String      input: Path of the directory holding the search's state.");
+			out.println("    <b>: String      input: Worker id, unique to this worker. A worker restarted with the same id resumes its own partitions.");
+			out.println("    [c]: Integer     input: Optional number of partitions to search at once. Defaults to the number of available processors.");
+			out.println("    Join a partitioned search started by partitionedVanity <...>, searching until any worker finds the vanity address.");
+			out.println("['vanityDifficulty'         or 'vd'] <a>");
+			out.println("    <a>: String      input: Vanity pattern to estimate, as for findVanityAddress <...>.");
+			out.println("    Estimate the number of candidates that findVanityAddress <...> must test to find an address matching the given pattern, and show how the pattern is matched.");
+			out.println("['batchPrivateKeyToAddress' or 'bka'] <a> <b> <c>");
+			out.println("    <a>: String      input: Path of the file to read hexadecimal private keys from, one per line.");
+			out.println("    <b>: String      input: Path of the file to write base-58 addresses to, one per line.");
+			out.println("    <c>: Boolean     input: Point compressed?");
+			out.println("    Derive the address of every private key in a file, using every available processor.");
+			out.println("['buildWatchList'           or 'bW'] <a> <b> <c>");
+			out.println("    <a>: String      input: Path of the file to read base-58 addresses or hexadecimal public keys from, one per line.");
+			out.println("    <b>: String      input: Path of the file to save the watch list to.");
+			out.println("    <c>: Integer     input: Bloom filter bits per address, or 0 for no Bloom filter. Around 10 is typical.");
+			out.println("    Build a memory-mapped watch list of addresses, which can be checked against derived keys without holding the addresses in memory.");
+			out.println("['watchListContains'        or 'wC'] <a> <b>");
+			out.println("    <a>: String      input: Path of the watch list file.");
+			out.println("    <b>: Base-58     input: Address to look up.");
+			out.println("    Check whether an address is on a watch list.");
+			out.println("['batchWatchList'           or 'bkw'] <a> <b> <c> <d>");
+			out.println("    <a>: String      input: Path of the watch list file.");
+			out.println("    <b>: String      input: Path of the file to read hexadecimal private keys from, one per line.");
+			out.println("    <c>: String      input: Path of the file to write each private key on the watch list to, followed by its address.");
+			out.println("    <d>: Boolean     input: Point compressed?");
+			out.println("    Derive the address of every private key in a file, using every available processor, and report only those on the watch list.");
+			out.println("['importKeysets'            or 'iK'] <a> <b>");
+			out.println("    <a>: String      input: Path of the file to read keysets from, one hexadecimal private key and base-58 address per line, as written by generateRandom <...> with a count.");
+			out.println("    <b>: String      input: Path of the keyset store to append them to, which is created if it does not exist.");
+			out.println("    Append keysets to a compact binary keyset store, indexed by address.");
+			out.println("['exportKeysets'            or 'eK'] <a> <b>");
+			out.println("    <a>: String      input: Path of the keyset store.");
+			out.println("    <b>: String      input: Path of the file to write keysets to, one hexadecimal private key and base-58 address per line.");
+			out.println("    Convert a keyset store back to text.");
+			out.println("['lookupKeyset'             or 'lK'] <a> <b>");
+			out.println("    <a>: String      input: Path of the keyset store.");
+			out.println("    <b>: Base-58     input: Address to look up.");
+			out.println("    Find the private key of an address in a keyset store, using its memory-mapped index.");
+			out.println("['buildFixedBaseTable'      or 'bT'] <a> <b>");
+			out.println("    <a>: String      input: Path of the file to save the table to.");
+			out.println("    <b>: Integer     input: Window size in bits, between 1 and 16. Each extra bit roughly halves the work per key and doubles the table size.");
+			out.println("    Build a precomputed table of multiples of the generator point, save it, and use it for every following private key conversion.");
+			out.println("['loadFixedBaseTable'       or 'lT'] <a>");
+			out.println("    <a>: String      input: Path of the file to load the table from.");
+			out.println("    Load a table saved by buildFixedBaseTable <...>, and use it for every following private key conversion.");
+			out.println("['derivationCache'          or 'dC'] [a]");
+			out.println("    [a]: Integer     input: Optional largest number of entries to cache, or 0 to disable the cache. If not given, the current cache is kept.");
+			out.println("    Print the hit, miss, and eviction counts of the derivation cache, then replace it with a new, empty cache if [a] is given.");
+			out.println("['encodeBase58'             or 'eB'] <a>");
+			out.println("    <a>: Hexadecimal input: Hexadecimal number to be converted to base-58.");
+			out.println("    Convert the given hexadecimal value to base-58.");
+			out.println("['encodeHex'                or 'eH'] <a>");
+			out.println("    <a>: Base-58     input: Base-58 number to be converted to hexadecimal.");
+			out.println("    Convert the given base-58 value to hexadecimal.");
+			out.println("['version'                  or 'V' ]");
+			out.println("    Print out the current IttyBittyBitcoin version number.");
+			out.println("['performTests'             or 't' ]");
+			out.println("    Perform a series of tests to make sure that IttyBittyBitcoin is functioning properly.");
+			out.println("['performConcurrencyTests'  or 'T' ] [a]");
+			out.println("    [a]: Integer     input: Optional maximum number of threads. Defaults to the number of available processors.");
+			out.println("    Stress test IttyBittyBitcoin from increasing numbers of threads at once, checking results and reporting throughput at each thread count.");
+			out.println("['interactiveMode'          or 'i' ]");
+			out.println("    Toggle interactive mode, which allows IttyBittyBitcoin commands to be entered alone without retyping the path to the executable jar.");
+			out.println("['daemon'                   or 'd' ] <a> [b] [c]");
+			out.println("    <a>: Integer     input: Port to listen on, on the loopback interface only. 0 picks any free port.");
+			out.println("    [b]: Integer     input: Optional number of worker threads. Defaults to the number of available processors.");
+			out.println("    [c]: String      input: Optional token that every request must hold after its request id. Defaults to no token.");
+			out.println("    Run as a long-lived daemon, executing commands sent over a local TCP socket. Each request is a line holding a request id, the token if one was given, and a command, such as '7 ka 01 true'. Only the pure conversion and derivation commands are executed ('checksum', 'kp', 'pK', 'Ka', 'pa', 'kK', 'ka', 'gR' for a single keypair, 'gH', 'gS', 'vd', 'eB', 'eH', and 'V'); every other command is answered with 'ERROR'. Each response is a line holding the request id, 'OK' or 'ERROR', and a line count, followed by that many lines of output. Many requests may be sent without waiting for their responses, which are written as each request finishes.");
+			out.println("['help'                     or '?' ]");
+			out.println("    Display this help screen.");
+			out.println("Notes: ");
+			out.println("------------");
+			out.println("    For every private key, both a compressed and uncompressed address can be generated. Those two addresses are completely different, with different balances. This exists because there are two ways of representing the public point. Early bitcoin software may not support the compressed addresses properly, but virtually all modern software will prefer the compressed addresses because of the smaller filesizes they create.");
+			out.println("    generateFromHash <...> is identical to privateKeyToPublicKey <...>, but both are maintained because they display the resulting output differently.");
+			out.println("    The amount of time a vanity address takes to generate depends on both the number of and type of characters in it. For example, '1' characters typically take much longer to find than others, while 'A' characters are typcially easier to find. ");
+		} else {
+			out.println("Unable to determine command. Try command \"help\" for a command reference.");
+			return false;
+		}
+		return true;
+	}
+	
 	/** Entry point for command-line mode of ibb. */
 	public static void main(String[] args) {
 		// Create IttyBittyBitcoin instance to send commands to
@@ -46,7 +527,8 @@ public class IttyBittyBitcoinCommandLine {
 		// Initialize variables for interactive mode, and enter interactive mode loop
 		boolean interactiveMode = false;
 		boolean startup = true;
-		try (Scanner sc = new Scanner(System.in)) {
+		Scanner sc = null;
+		try {
 			while (interactiveMode || startup) {
 				startup = false;
 				
@@ -57,122 +539,19 @@ public class IttyBittyBitcoinCommandLine {
 						args = new String[]{""};
 					}
 					
-					// Perform each command if applicable
-					if (args.length == 2 && (args[0].equals("checksum") || args[0].equals("-"))) {
-						System.out.println("Computed checksum: " + ibb.encodeHex(ibb.checksum(ibb.decodeHex(args[1]))));
-					} else if (args.length == 3 && (args[0].equals("privateKeyToPublicPoint") || args[0].equals("kp"))) {
-						System.out.println("Public point: " + ibb.encodeHex(ibb.privateKeyToPublicPoint(ibb.decodeHex(args[1]), decodeBoolean(args[2]))));
-					} else if (args.length == 2 && (args[0].equals("publicPointToPublicKey") || args[0].equals("pK"))) {
-						System.out.println("Public key: " + ibb.encodeHex(ibb.publicPointToPublicKey(ibb.decodeHex(args[1]))));
-					} else if (args.length == 2 && (args[0].equals("publicKeyToAddress") || args[0].equals("Ka"))) {
-						System.out.println("Address: " + ibb.encodeBase58(ibb.publicKeyToAddress(ibb.decodeHex(args[1]))));
-					} else if (args.length == 2 && (args[0].equals("publicPointToAddress") || args[0].equals("pa"))) {
-						System.out.println(ibb.encodeBase58(ibb.publicPointToAddress(ibb.decodeHex(args[1]))));
-					} else if (args.length == 3 && (args[0].equals("privateKeyToPublicKey") || args[0].equals("kK"))) {
-						System.out.println("Public key: " + ibb.encodeHex(ibb.privateKeyToPublicKey(ibb.decodeHex(args[1]), decodeBoolean(args[2]))));
-					} else if (args.length == 3 && (args[0].equals("privateKeyToAddress") || args[0].equals("ka"))) {
-						System.out.println("Address: " + ibb.encodeBase58(ibb.privateKeyToAddress(ibb.decodeHex(args[1]), decodeBoolean(args[2]))));
-					} else if (args.length == 2 && (args[0].equals("generateRandom") || args[0].equals("gR"))) {
-						System.out.println("Generating random keyset...");
-						byte[] privateKey = ibb.generateRandomPrivateKey();
-						System.out.println("Generated private key: " + ibb.encodeHex(privateKey));
-						System.out.println("Generated key's address: " + ibb.encodeBase58(ibb.privateKeyToAddress(privateKey, decodeBoolean(args[1]))));
-					} else if (args.length == 3 && (args[0].equals("generateFromHash") || args[0].equals("gH"))) {
-						System.out.println("Generating keyset from hash...");
-						byte[] privateKey = ibb.decodeHex(args[1]);
-						System.out.println("Generated private key: " + ibb.encodeHex(privateKey));
-						System.out.println("Generated key's address: " + ibb.encodeBase58(ibb.privateKeyToAddress(privateKey, decodeBoolean(args[2]))));
-					} else if (args.length == 4 && (args[0].equals("generateFromStringSHA256") || args[0].equals("gS"))) {
-						System.out.println("Generating keyset from SHA-256 hashed String...");
-						try {
-							byte[] privateKey = ibb.hashSHA256(args[1].replace("\\n", "\n").replace("\\t", "\t").replace("\\s", " ").replace("\\\\", "\\").getBytes(args[2]));
-							System.out.println("Generated private key: " + ibb.encodeHex(privateKey));
-							System.out.println("Generated key's address: " + ibb.encodeBase58(ibb.privateKeyToAddress(privateKey, decodeBoolean(args[3]))));
-						} catch (UnsupportedEncodingException e) { throw new RuntimeException("Unsupported Encoding!", e); }
-					} else if (args.length == 3 && (args[0].equals("findVanityAddress") || args[0].equals("v"))) {
-						System.out.println("Searching for vanity address...");
-						byte[] privateVanity = ibb.findVanityAddress(args[1], decodeBoolean(args[2]));
-						System.out.println("Vanity address found!");
-						System.out.println("Vanity address private key: " + ibb.encodeHex(privateVanity));
-						System.out.println("Vanity address: " + ibb.encodeBase58(ibb.privateKeyToAddress(privateVanity, decodeBoolean(args[2]))));
-					} else if (args.length == 2 && (args[0].equals("encodeBase58") || args[0].equals("eB"))) {
-						System.out.println("Base-58 encoded value: " + ibb.encodeBase58(ibb.decodeHex(args[1])));
-					} else if (args.length == 2 && (args[0].equals("encodeHex") || args[0].equals("eH"))) {
-						System.out.println("Hexadecimal encoded value: " + ibb.encodeHex(ibb.decodeBase58(args[1])));
-					} else if (args.length == 1 && (args[0].equals("version") || args[0].equals("V"))) {
-						System.out.println("Current IttyBittyBitcoin version: V" + IttyBittyBitcoin.version + ".");
-					} else if (args.length == 1 && (args[0].equals("performTests") || args[0].equals("t"))) {
-						System.out.println(ibb.performTests());
-					} else if (args.length == 1 && (args[0].equals("interactiveMode") || args[0].equals("i"))) {
+					// Interactive mode and daemon mode change how commands are read, while every other command is executed directly
+					if (args.length == 1 && (args[0].equals("interactiveMode") || args[0].equals("i"))) {
 						System.out.println(interactiveMode ? "Leaving interactive mode. Goodbye!" : "Entering interactive mode. Welcome!");
 						interactiveMode = !interactiveMode;
-					} else if (args.length == 1 && (args[0].equals("help") || args[0].equals("Help") || args[0].equals("?") || args[0].equals("/?") || args[0].equals("-?") || args[0].equals("h") || args[0].equals("H"))) {
-						System.out.println("IttyBittyBitcoin");
-						System.out.println("------------");
-						System.out.println("	IttyBittyBitcoin is a set of free open-source cross-platform Java tools for working with bitcoin addresses. It can either be used as a library or run from the command line. It is MIT-licensed, and its only dependency is the BouncyCastle crypto library.");
-						System.out.println("Command reference: ");
-						System.out.println("------------");
-						System.out.println("['checksum'                 or 'c' ] <a>");
-						System.out.println("    <a>: Hexadecimal input: Value to compute checksum of.");
-						System.out.println("    Compute checksum of the given value, which is the last 4 bytes of the result of SHA-256 hashing the value twice.");
-						System.out.println("['privateKeyToPublicPoint'  or 'kp'] <a> <b>");
-						System.out.println("    <a>: Hexadecimal input: Private key.");
-						System.out.println("    <b>: Boolean     input: Point compressed?");
-						System.out.println("    Compute the public point that this private key represents. This point is used to compute the public key and address.");
-						System.out.println("['publicPointToPublicKey'   or 'pK'] <a>");
-						System.out.println("    <a>: Hexadecimal input: Public point.");
-						System.out.println("    Compute the SHA-256 hash followed by the RIME MD-160 hash of the given value, turning the given public point into a public key.");
-						System.out.println("['publicKeyToAddress'       or 'Ka'] <a>");
-						System.out.println("    <a>: Hexadecimal input: Public key.");
-						System.out.println("    Compute the address that is represented by the given public key. This is the number which, when encoded in base-58, is used to publicly identify this bitcoin wallet.");
-						System.out.println("['publicPointToAddress'     or 'pa'] <a>");
-						System.out.println("    <a>: Hexadecimal input: Public point.");
-						System.out.println("    Convenience function successively calling publicKeyToAddress <...> and publicPointToPublicKey <...>. See those for documentation.");
-						System.out.println("['privateKeyToPublicKey'    or 'kK'] <a> <b>");
-						System.out.println("    <a>: Hexadecimal input: Private key.");
-						System.out.println("    <b>: Boolean     input: Point compressed?");
-						System.out.println("    Convenience function successively calling publicPointToPublicKey <...> and privateKeyToPublicPoint <...>. See those for documentation.");
-						System.out.println("['privateKeyToAddress'      or 'ka'] <a> <b>");
-						System.out.println("    <a>: Hexadecimal input: Private key.");
-						System.out.println("    <b>: Boolean     input: Point compressed?");
-						System.out.println("    Convenience function successively calling publicKeyToAddress <...>, publicPointToPublicKey <...>, and privateKeyToPublicPoint <...>. See those for documentation.");
-						System.out.println("['generateRandom'           or 'gR'] <a>");
-						System.out.println("    <a>: Boolean     input: Point compressed?");
-						System.out.println("    Creates a new pseudorandomly-generated keypair.");
-						System.out.println("['generateFromHash'         or 'gH'] <a> <b>");
-						System.out.println("    <a>: Hexadecimal input: Hash value, typically 256-bit.");
-						System.out.println("    <b>: Boolean     input: Point compressed?");
-						System.out.println("    Creates a keypair from the given hash value.");
-						System.out.println("['generateFromStringSHA256' or 'gS'] <a> <b> <c>");
-						System.out.println("    <a>: String      input: String to be hashed. '\\s' will escape as a space character, '\\n' will escape as a newline character, and '\\t' will escape as a tab character. '\\\\' can be used to escape a backslash.");
-						System.out.println("    <a>: String      input: Charset of string to be hashed. Typically one of 'US-ASCII' or 'UTF-8'.");
-						System.out.println("    <c>: Boolean     input: Point compressed?");
-						System.out.println("    Creates a keypair from the SHA-256 hash value of the given String.");
-						System.out.println("['findVanityAddress'        or 'v' ] <a> <b>");
-						System.out.println("    <a>: Base-58     input: Vanity string to search for.");
-						System.out.println("    <b>: Boolean     input: Point compressed?");
-						System.out.println("    Find a vanity Bitcoin address, which will start with the given String. This is done probabilistically, and can take enormous amounts of time and CPU for longer vanity Strings.");
-						System.out.println("['encodeBase58'             or 'eB'] <a>");
-						System.out.println("    <a>: Hexadecimal input: Hexadecimal number to be converted to base-58.");
-						System.out.println("    Convert the given hexadecimal value to base-58.");
-						System.out.println("['encodeHex'                or 'eH'] <a>");
-						System.out.println("    <a>: Base-58     input: Base-58 number to be converted to hexadecimal.");
-						System.out.println("    Convert the given base-58 value to hexadecimal.");
-						System.out.println("['version'                  or 'V' ]");
-						System.out.println("    Print out the current IttyBittyBitcoin version number.");
-						System.out.println("['performTests'             or 't' ]");
-						System.out.println("    Perform a series of tests to make sure that IttyBittyBitcoin is functioning properly.");
-						System.out.println("['interactiveMode'          or 'i' ]");
-						System.out.println("    Toggle interactive mode, which allows IttyBittyBitcoin commands to be entered alone without retyping the path to the executable jar.");
-						System.out.println("['help'                     or '?' ]");
-						System.out.println("    Display this help screen.");
-						System.out.println("Notes: ");
-						System.out.println("------------");
-						System.out.println("    For every private key, both a compressed and uncompressed address can be generated. Those two addresses are completely different, with different balances. This exists because there are two ways of representing the public point. Early bitcoin software may not support the compressed addresses properly, but virtually all modern software will prefer the compressed addresses because of the smaller filesizes they create.");
-						System.out.println("    generateFromHash <...> is identical to privateKeyToPublicKey <...>, but both are maintained because they display the resulting output differently.");
-						System.out.println("    The amount of time a vanity address takes to generate depends on both the number of and type of characters in it. For example, '1' characters typically take much longer to find than others, while 'A' characters are typcially easier to find. ");
+					} else if ((args.length >= 2 && args.length <= 4) && (args[0].equals("daemon") || args[0].equals("d"))) {
+						int    threadCount = args.length >= 3 ? decodeThreadCount(args[2]) : Runtime.getRuntime().availableProcessors();
+						String token       = args.length == 4 ? args[3] : null;
+						try (IttyBittyBitcoinDaemon daemon = new IttyBittyBitcoinDaemon(ibb, Integer.parseInt(args[1]), threadCount, token)) {
+							System.out.println("Daemon listening on " + daemon.getAddress() + " with " + threadCount + " worker thread(s)...");
+							daemon.run();
+						} catch (IOException e) { throw new RuntimeException("Unable to run daemon!", e); }
 					} else {
-						System.out.println("Unable to determine command. Try command \"help\" for a command reference.");
+						execute(ibb, args, System.out);
 					}
 				} catch (Exception e) {
 					// Only throw exception when not in interactive mode
@@ -185,26 +564,20 @@ public class IttyBittyBitcoinCommandLine {
 				
 				// Wait for next set of commands/arguments when in interactive mode
 				if (interactiveMode) {
-					String line = sc.nextLine() + " "; // Space is added to prevent last argument being skipped
-					
-					// Break up given list of arguments by white space
-					ArrayList<String> newArgs = new ArrayList<String>();
-					String currentArg = "";
-					for (int pos = 0; pos<line.length(); pos++) {
-						if (Character.isWhitespace(line.charAt(pos))) {
-							if (currentArg.length()>0) {
-								newArgs.add(currentArg);
-								currentArg = "";
-							}
-						} else {
-							currentArg = currentArg + line.charAt(pos);
-						}
+					// The Scanner is only created once it is needed, since it pulls in regular expressions and locale data that a one-shot command never uses
+					if (sc == null) {
+						sc = new Scanner(System.in);
 					}
+					String line = sc.nextLine();
 					
 					// Reset list of arguments, allowing the interactive mode loop to begin again
-					args = newArgs.toArray(new String[newArgs.size()]);
+					args = tokenize(line);
 				}
 			}
+		} finally {
+			if (sc != null) {
+				sc.close();
+			}
 		}
 	}
 }
\ No newline at end of file
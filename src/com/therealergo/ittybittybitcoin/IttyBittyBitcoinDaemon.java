@@ -0,0 +1,249 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Long-running server that executes command-line commands sent over a local TCP socket, so that scripts avoid paying for JVM startup, curve setup, and a cold JIT on every call. Only connections from the loopback interface are accepted, and only the pure conversion and derivation commands are executed, so that nothing that can reach the port can write files, start processes, change process-wide state, or start a search that never ends. If the daemon has a token, every request must present it. Each request is one line holding a request id followed by a command and its arguments, exactly as they would be typed in interactive mode. Requests are executed on a shared pool of worker threads, so a connection may send many requests without waiting for their responses. Each response is a line holding the request id, 'OK' or 'ERROR', and the number of output lines that follow, then those output lines. Responses are written as soon as each request finishes, which may not be the order in which they were sent. */
+public class IttyBittyBitcoinDaemon implements Closeable {
+	/** The largest number of requests from one connection that may be queued or running at once. Reading from a connection pauses once it has this many requests in flight. */
+	private static final int maxInFlightPerConnection = 1024;
+	/** The commands that the daemon executes, by both their long and short names. Every other command is answered with 'ERROR' without being run. */
+	private static final Set<String> allowedCommands = new HashSet<String>(Arrays.asList(
+			"checksum"                 , "-" ,
+			"privateKeyToPublicPoint"  , "kp",
+			"publicPointToPublicKey"   , "pK",
+			"publicKeyToAddress"       , "Ka",
+			"publicPointToAddress"     , "pa",
+			"privateKeyToPublicKey"    , "kK",
+			"privateKeyToAddress"      , "ka",
+			"generateFromHash"         , "gH",
+			"generateFromStringSHA256" , "gS",
+			"vanityDifficulty"         , "vd",
+			"encodeBase58"             , "eB",
+			"encodeHex"                , "eH",
+			"version"                  , "V" ));
+	
+	/** The IttyBittyBitcoin instance shared by every worker, which keeps its hashing state per-thread. */
+	private final IttyBittyBitcoin ibb;
+	/** The UTF-8 bytes of the token that every request must present, or null if requests need no token. */
+	private final byte[]           token;
+	/** The socket that connections are accepted from. */
+	private final ServerSocket     serverSocket;
+	/** The worker threads that execute requests. */
+	private final ExecutorService  workers;
+	/** Every open connection, so that they can be closed along with the daemon. */
+	private final Set<Socket>      connections = Collections.synchronizedSet(new HashSet<Socket>());
+	/** The number of connections accepted so far, used to name each connection's thread. */
+	private final AtomicInteger    connectionCount = new AtomicInteger();
+	
+	/** Create a new daemon listening on the given port of the loopback interface, or on any free port if 'port' is 0, executing requests on 'threadCount' worker threads. Connections are not accepted until run() is called. */
+	public IttyBittyBitcoinDaemon(IttyBittyBitcoin ibb, int port, int threadCount) throws IOException {
+		this(ibb, port, threadCount, null);
+	}
+	
+	/** Create a new daemon as above, but if 'token' is not null then every request must hold it between the request id and the command, as in '7 token ka 01 true'. Requests with a missing or wrong token are answered with 'ERROR'. */
+	public IttyBittyBitcoinDaemon(IttyBittyBitcoin ibb, int port, int threadCount, String token) throws IOException {
+		if (threadCount < 1) {
+			throw new RuntimeException("Unable to start daemon: At least one worker thread is required!");
+		}
+		if (token != null && (token.isEmpty() || IttyBittyBitcoinCommandLine.tokenize(token).length != 1)) {
+			throw new RuntimeException("Unable to start daemon: Token must be a single word!");
+		}
+		this.ibb          = ibb;
+		this.token        = token == null ? null : token.getBytes(StandardCharsets.UTF_8);
+		this.serverSocket = new ServerSocket(port, 64, InetAddress.getLoopbackAddress());
+		AtomicInteger workerCount = new AtomicInteger();
+		this.workers      = Executors.newFixedThreadPool(threadCount, (runnable) -> {
+			Thread thread = new Thread(runnable, "IttyBittyBitcoin daemon worker " + workerCount.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/** Returns the port that this daemon is listening on. */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+	
+	/** Returns the address and port that this daemon is listening on, in the form 'address:port'. */
+	public String getAddress() {
+		return serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+	}
+	
+	/** Accept connections until this daemon is closed, serving each one from its own reading thread. */
+	public void run() throws IOException {
+		while (!serverSocket.isClosed()) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				// Closing the daemon interrupts accept() with an exception, which ends the loop normally
+				if (serverSocket.isClosed()) {
+					return;
+				}
+				throw e;
+			}
+			connections.add(socket);
+			Thread reader = new Thread(() -> serve(socket), "IttyBittyBitcoin daemon connection " + connectionCount.getAndIncrement());
+			reader.setDaemon(true);
+			reader.start();
+		}
+	}
+	
+	/** Read requests from the given connection until it is closed, handing each one to the worker threads. */
+	private void serve(Socket socket) {
+		Semaphore inFlight = new Semaphore(maxInFlightPerConnection);
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			 Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				String[] tokens = IttyBittyBitcoinCommandLine.tokenize(line);
+				if (tokens.length == 0) {
+					continue;
+				}
+				
+				// The first token is the request id, followed by the daemon's token if it has one, and the rest are the command and its arguments
+				String   id   = tokens[0];
+				int      commandStart = Math.min(token != null ? 2 : 1, tokens.length);
+				boolean  authorized   = token == null || (tokens.length > 1 && MessageDigest.isEqual(token, tokens[1].getBytes(StandardCharsets.UTF_8)));
+				String[] args = Arrays.copyOfRange(tokens, commandStart, tokens.length);
+				inFlight.acquire();
+				try {
+					workers.execute(() -> {
+						try {
+							respond(writer, id, authorized, args);
+						} finally {
+							inFlight.release();
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					// The daemon has been closed
+					return;
+				}
+			}
+			
+			// Let every request already read finish writing its response before the connection is closed
+			inFlight.acquire(maxInFlightPerConnection);
+		} catch (IOException | InterruptedException e) {
+			// The connection was closed by the client or by closing the daemon, so there is no one to report to
+		} finally {
+			connections.remove(socket);
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Ignore errors closing an already broken connection
+			}
+		}
+	}
+	
+	/** Returns whether the daemon executes the given command. Random keypairs may be generated one at a time, but not streamed in bulk. */
+	static boolean isAllowed(String[] args) {
+		if (args.length == 2 && (args[0].equals("generateRandom") || args[0].equals("gR"))) {
+			return true;
+		}
+		return allowedCommands.contains(args[0]);
+	}
+	
+	/** Execute one request, unless it is unauthorized or not allowed, and write its response to the given connection's writer. */
+	private void respond(Writer writer, String id, boolean authorized, String[] args) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		String status;
+		try (PrintStream out = new PrintStream(output, false, "UTF-8")) {
+			if (!authorized) {
+				throw new RuntimeException("Missing or wrong token after request id.");
+			}
+			if (args.length == 0) {
+				throw new RuntimeException("Missing command after request id.");
+			}
+			if (!isAllowed(args)) {
+				throw new RuntimeException("Command not allowed in daemon mode: '" + args[0] + "'.");
+			}
+			status = IttyBittyBitcoinCommandLine.execute(ibb, args, out) ? "OK" : "ERROR";
+		} catch (Exception e) {
+			output.reset();
+			byte[] message = String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8);
+			output.write(message, 0, message.length);
+			status = "ERROR";
+		}
+		
+		// Split the output into lines, ignoring any carriage returns and the final line break
+		String text = new String(output.toByteArray(), StandardCharsets.UTF_8).replace("\r", "");
+		if (text.endsWith("\n")) {
+			text = text.substring(0, text.length() - 1);
+		}
+		int lineCount = text.isEmpty() ? 0 : 1;
+		for (int i = 0; i<text.length(); i++) {
+			if (text.charAt(i) == '\n') {
+				lineCount++;
+			}
+		}
+		
+		// Write the whole response at once, so that responses from different workers never interleave
+		synchronized (writer) {
+			try {
+				writer.write(id + " " + status + " " + lineCount + "\n");
+				if (lineCount > 0) {
+					writer.write(text);
+					writer.write('\n');
+				}
+				writer.flush();
+			} catch (IOException e) {
+				// The connection was closed before the response could be written, so there is no one to report to
+			}
+		}
+	}
+	
+	/** Stop accepting connections, close every open connection, and stop the worker threads. */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		workers.shutdownNow();
+		synchronized (connections) {
+			for (Socket socket : connections) {
+				socket.close();
+			}
+		}
+	}
+}
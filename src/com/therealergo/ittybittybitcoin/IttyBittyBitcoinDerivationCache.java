@@ -0,0 +1,231 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Bounded cache of derived public points, public keys, and addresses, placed in front of IttyBittyBitcoin's derivation methods by IttyBittyBitcoin.useDerivationCache(...). Entries are keyed by private key and compressed flag, or by public point for publicPointToAddress(...), and each holds everything derived from its key, so that a hit on any method skips both the EC multiplication and the hashing. The cache is split into segments, each a least-recently-used map under its own lock, and holds at most about 'maxEntries' entries of roughly 300 bytes each. Evicted entries are overwritten with zeros, so that private keys do not linger on the heap, and callers always receive copies. Instances are thread-safe. */
+public class IttyBittyBitcoinDerivationCache {
+	/** Key tag of entries keyed by a private key whose public point is compressed. */
+	private static final byte tagCompressed   = 0;
+	/** Key tag of entries keyed by a private key whose public point is uncompressed. */
+	private static final byte tagUncompressed = 1;
+	/** Key tag of entries keyed by a public point. */
+	private static final byte tagPublicPoint  = 2;
+	/** Index of the public point in an entry's value. */
+	private static final int  fieldPublicPoint = 0;
+	/** Index of the public key in an entry's value. */
+	private static final int  fieldPublicKey   = 1;
+	/** Index of the address in an entry's value. */
+	private static final int  fieldAddress     = 2;
+	/** Largest number of segments that the cache is split into. */
+	private static final int  maxSegments      = 16;
+	
+	/** Key of one entry: a tag byte followed by the private key or public point. */
+	private static final class Key {
+		private final byte[] bytes;
+		private final int    hash;
+		
+		private Key(byte[] bytes) {
+			this.bytes = bytes;
+			this.hash  = Arrays.hashCode(bytes);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && Arrays.equals(bytes, ((Key)other).bytes);
+		}
+	}
+	
+	/** One segment of the cache, a LinkedHashMap in access order that evicts and zeroes its least recently used entry once it is full. */
+	private final class Segment extends LinkedHashMap<Key, byte[][]> {
+		private static final long serialVersionUID = 1L;
+		
+		/** The number of entries this segment holds before it starts evicting. */
+		private final int capacity;
+		
+		private Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, byte[][]> eldest) {
+			if (size() <= capacity) {
+				return false;
+			}
+			zero(eldest.getKey().bytes, eldest.getValue());
+			evictions.increment();
+			return true;
+		}
+	}
+	
+	/** The segments of the cache, of which there are always a power of two. */
+	private final Segment[] segments;
+	/** The largest number of entries the cache holds, summed over every segment. */
+	private final long      maxEntries;
+	
+	/** The number of lookups answered from the cache. */
+	private final LongAdder hits      = new LongAdder();
+	/** The number of lookups that had to derive their result. */
+	private final LongAdder misses    = new LongAdder();
+	/** The number of entries evicted to make room for others. */
+	private final LongAdder evictions = new LongAdder();
+	
+	/** Create a new, empty cache holding at most about 'maxEntries' entries. */
+	public IttyBittyBitcoinDerivationCache(int maxEntries) {
+		if (maxEntries < 1) {
+			throw new RuntimeException("Derivation cache must hold at least 1 entry.");
+		}
+		int segmentCount = Math.min(maxSegments, Integer.highestOneBit(maxEntries));
+		int capacity = (maxEntries + segmentCount - 1) / segmentCount;
+		this.segments   = new Segment[segmentCount];
+		this.maxEntries = (long)capacity * segmentCount;
+		for (int i = 0; i<segmentCount; i++) {
+			segments[i] = new Segment(capacity);
+		}
+	}
+	
+	/** Overwrite the given key and every array of the given value with zeros. */
+	private static void zero(byte[] key, byte[][] value) {
+		Arrays.fill(key, (byte)0);
+		for (byte[] field : value) {
+			Arrays.fill(field, (byte)0);
+		}
+	}
+	
+	/** Cached version of privateKeyToPublicPoint(...). */
+	public byte[] privateKeyToPublicPoint(IttyBittyBitcoin ibb, byte[] privateKey, boolean compressed) {
+		return lookup(ibb, compressed ? tagCompressed : tagUncompressed, privateKey, fieldPublicPoint);
+	}
+	
+	/** Cached version of privateKeyToPublicKey(...). */
+	public byte[] privateKeyToPublicKey(IttyBittyBitcoin ibb, byte[] privateKey, boolean compressed) {
+		return lookup(ibb, compressed ? tagCompressed : tagUncompressed, privateKey, fieldPublicKey);
+	}
+	
+	/** Cached version of privateKeyToAddress(...). */
+	public byte[] privateKeyToAddress(IttyBittyBitcoin ibb, byte[] privateKey, boolean compressed) {
+		return lookup(ibb, compressed ? tagCompressed : tagUncompressed, privateKey, fieldAddress);
+	}
+	
+	/** Cached version of publicPointToAddress(...). */
+	public byte[] publicPointToAddress(IttyBittyBitcoin ibb, byte[] publicPoint) {
+		return lookup(ibb, tagPublicPoint, publicPoint, fieldAddress);
+	}
+	
+	/** Returns a copy of the given field of the entry for 'input' with the given tag, deriving and inserting the entry on a miss. Derivation happens outside of any lock, so a key missed by two threads at once is derived by both, and the second entry is discarded. */
+	private byte[] lookup(IttyBittyBitcoin ibb, byte tag, byte[] input, int field) {
+		byte[] keyBytes = new byte[input.length + 1];
+		keyBytes[0] = tag;
+		System.arraycopy(input, 0, keyBytes, 1, input.length);
+		Key key = new Key(keyBytes);
+		Segment segment = segments[(key.hash ^ (key.hash >>> 16)) & (segments.length - 1)];
+		
+		// Copy the field while holding the lock, since an evicted entry is zeroed
+		synchronized (segment) {
+			byte[][] value = segment.get(key);
+			if (value != null) {
+				hits.increment();
+				Arrays.fill(keyBytes, (byte)0);
+				return value[field].clone();
+			}
+		}
+		misses.increment();
+		
+		// Derive everything at once, so that every other method hits this entry too
+		byte[][] value = new byte[3][];
+		if (tag == tagPublicPoint) {
+			value[fieldPublicPoint] = input.clone();
+		} else {
+			value[fieldPublicPoint] = ibb.derivePublicPoint(input, tag == tagCompressed);
+		}
+		value[fieldPublicKey] = ibb.publicPointToPublicKey(value[fieldPublicPoint]);
+		value[fieldAddress  ] = ibb.publicKeyToAddress(value[fieldPublicKey]);
+		byte[] result = value[field].clone();
+		synchronized (segment) {
+			if (segment.putIfAbsent(key, value) != null) {
+				zero(keyBytes, value);
+			}
+		}
+		return result;
+	}
+	
+	/** Remove every entry from the cache, zeroing each one. The counters are not reset. */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				for (Map.Entry<Key, byte[][]> entry : segment.entrySet()) {
+					zero(entry.getKey().bytes, entry.getValue());
+				}
+				segment.clear();
+			}
+		}
+	}
+	
+	/** Returns the number of entries currently in the cache. */
+	public long getSize() {
+		long size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+	
+	/** Returns the largest number of entries the cache holds. */
+	public long getMaxEntries() {
+		return maxEntries;
+	}
+	
+	/** Returns the number of lookups answered from the cache. */
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	/** Returns the number of lookups that had to derive their result. */
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	/** Returns the number of entries evicted to make room for others. */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	/** Returns the fraction of lookups answered from the cache, or 0 if there have been none. */
+	public double getHitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0.0 : (double)hits / total;
+	}
+}
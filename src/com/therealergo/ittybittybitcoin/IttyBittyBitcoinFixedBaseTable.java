@@ -0,0 +1,215 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECPoint;
+
+/** Precomputed table of multiples of the secp256k1 generator point G, used to multiply G by a private key with only additions. The private key is split into windows of 'windowBits' bits, and for every window i and every nonzero digit d the table holds d * 2^(windowBits * i) * G. Larger windows need fewer additions per multiplication, but the table grows to ceil(256 / windowBits) * (2^windowBits - 1) points of 64 bytes each. Tables are immutable once built, and may be shared between threads. */
+public class IttyBittyBitcoinFixedBaseTable {
+	/** Magic number at the start of every saved table file, the ASCII characters 'IBBT'. */
+	private static final int magic       = 0x49424254;
+	/** Version number of the saved table file format. Version 2 added the digest of the points to the header. */
+	private static final int fileVersion = 2;
+	/** Number of bytes in a saved table file's header: magic number, version, window size, and the SHA-256 digest of the points that follow. */
+	private static final int headerSize  = 44;
+	
+	/** The domain instance holding the parameters of the secp256k1 curve. */
+	private final ECDomainParameters domain;
+	/** Number of bits of the private key covered by each window. */
+	private final int                windowBits;
+	/** The affine table points, where points[i][d - 1] is d * 2^(windowBits * i) * G. */
+	private final ECPoint[][]        points;
+	
+	/** Create a table around the given points, which must already be affine. */
+	private IttyBittyBitcoinFixedBaseTable(ECDomainParameters domain, int windowBits, ECPoint[][] points) {
+		this.domain     = domain;
+		this.windowBits = windowBits;
+		this.points     = points;
+	}
+	
+	/** Returns the number of windows that a private key is split into for the given window size. */
+	private static int windowCount(ECDomainParameters domain, int windowBits) {
+		return (domain.getN().bitLength() + windowBits - 1) / windowBits;
+	}
+	
+	/** Check that the given window size is one that a table can be built for. */
+	private static void checkWindowBits(int windowBits) {
+		if (windowBits < 1 || windowBits > 16) {
+			throw new RuntimeException("Fixed-base table window size must be between 1 and 16 bits.");
+		}
+	}
+	
+	/** Returns the number of bytes of points that a table with the given window size holds, which is roughly its memory footprint and exactly the size of its saved file after the header. */
+	public static long estimateSize(int windowBits) {
+		checkWindowBits(windowBits);
+		return 64L * windowCount(IttyBittyBitcoin.getSharedDomain(), windowBits) * ((1 << windowBits) - 1);
+	}
+	
+	/** Build a new table with the given window size, between 1 and 16 bits. Window sizes of 8 to 12 bits are typical. */
+	public static IttyBittyBitcoinFixedBaseTable build(int windowBits) {
+		checkWindowBits(windowBits);
+		ECDomainParameters domain = IttyBittyBitcoin.getSharedDomain();
+		int digits = (1 << windowBits) - 1;
+		ECPoint[][] points = new ECPoint[windowCount(domain, windowBits)][digits];
+		
+		// Each window's base point is the previous window's base point doubled 'windowBits' times
+		ECPoint windowBase = domain.getG().normalize();
+		for (int i = 0; i<points.length; i++) {
+			ECPoint multiple = windowBase;
+			for (int d = 0; d<digits; d++) {
+				points[i][d] = multiple;
+				multiple = multiple.add(windowBase);
+			}
+			
+			// Convert the whole window to affine coordinates at once, sharing a single inversion
+			domain.getCurve().normalizeAll(points[i]);
+			windowBase = windowBase.timesPow2(windowBits).normalize();
+		}
+		return new IttyBittyBitcoinFixedBaseTable(domain, windowBits, points);
+	}
+	
+	/** Load a table previously written by save(...), mapping the file into memory rather than reading it through a stream. Every point is checked against the SHA-256 digest in the header, since a single wrong point would silently produce wrong addresses for every private key holding that digit. */
+	public static IttyBittyBitcoinFixedBaseTable load(Path path) throws IOException {
+		ECDomainParameters domain = IttyBittyBitcoin.getSharedDomain();
+		ECCurve curve = domain.getCurve();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			
+			// Check the header before trusting the size of the rest of the file
+			if (buffer.remaining() < headerSize || buffer.getInt() != magic || buffer.getInt() != fileVersion) {
+				throw new RuntimeException("File is not an IttyBittyBitcoin fixed-base table: " + path);
+			}
+			int windowBits = buffer.getInt();
+			checkWindowBits(windowBits);
+			byte[] expectedDigest = new byte[32];
+			buffer.get(expectedDigest);
+			if (buffer.remaining() != estimateSize(windowBits)) {
+				throw new RuntimeException("Fixed-base table file is truncated or corrupt: " + path);
+			}
+			
+			// Every point is stored as its affine x and y coordinates, so they can be used without recomputation
+			int digits = (1 << windowBits) - 1;
+			ECPoint[][] points = new ECPoint[windowCount(domain, windowBits)][digits];
+			byte[] coordinate = new byte[32];
+			SHA256Digest digest = new SHA256Digest();
+			for (int i = 0; i<points.length; i++) {
+				for (int d = 0; d<digits; d++) {
+					buffer.get(coordinate);
+					digest.update(coordinate, 0, coordinate.length);
+					BigInteger x = new BigInteger(1, coordinate);
+					buffer.get(coordinate);
+					digest.update(coordinate, 0, coordinate.length);
+					BigInteger y = new BigInteger(1, coordinate);
+					points[i][d] = curve.createPoint(x, y);
+				}
+			}
+			
+			// Check the digest of every point, which catches corruption anywhere in the table, then spot-check the first and last points against the curve
+			byte[] actualDigest = new byte[32];
+			digest.doFinal(actualDigest, 0);
+			if (!MessageDigest.isEqual(actualDigest, expectedDigest) || !points[0][0].equals(domain.getG()) || !points[points.length - 1][digits - 1].isValid()) {
+				throw new RuntimeException("Fixed-base table file is corrupt: " + path);
+			}
+			return new IttyBittyBitcoinFixedBaseTable(domain, windowBits, points);
+		}
+	}
+	
+	/** Save this table to the given file, so that later runs can load(...) it instead of building it again. */
+	public void save(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			// The digest is only known once every point is written, so its place in the header is filled in last
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+			buffer.putInt(magic);
+			buffer.putInt(fileVersion);
+			buffer.putInt(windowBits);
+			buffer.position(headerSize);
+			SHA256Digest digest = new SHA256Digest();
+			for (int i = 0; i<points.length; i++) {
+				for (int d = 0; d<points[i].length; d++) {
+					if (buffer.remaining() < 64) {
+						buffer.flip();
+						while (buffer.hasRemaining()) {
+							channel.write(buffer);
+						}
+						buffer.clear();
+					}
+					byte[] x = points[i][d].getAffineXCoord().getEncoded();
+					byte[] y = points[i][d].getAffineYCoord().getEncoded();
+					digest.update(x, 0, x.length);
+					digest.update(y, 0, y.length);
+					buffer.put(x);
+					buffer.put(y);
+				}
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			
+			byte[] digestBytes = new byte[32];
+			digest.doFinal(digestBytes, 0);
+			ByteBuffer digestBuffer = ByteBuffer.wrap(digestBytes);
+			while (digestBuffer.hasRemaining()) {
+				channel.write(digestBuffer, headerSize - digestBytes.length + digestBuffer.position());
+			}
+		}
+	}
+	
+	/** Returns the number of bits of the private key covered by each window of this table. */
+	public int getWindowBits() {
+		return windowBits;
+	}
+	
+	/** Multiply the generator point G by the given private key, using one point addition per nonzero window. The returned point is in Jacobian coordinates, and must be normalized before its affine coordinates are used. */
+	public ECPoint multiply(BigInteger privateKey) {
+		byte[] k = IttyBittyBitcoinCandidateGenerator.toPrivateKeyBytes(privateKey.mod(domain.getN()));
+		int mask = (1 << windowBits) - 1;
+		ECPoint result = domain.getCurve().getInfinity();
+		for (int i = 0; i<points.length; i++) {
+			// Gather the 3 little-endian bytes holding this window's bits, which is enough for windows of up to 16 bits at any bit offset
+			int bitOffset = i * windowBits;
+			int lowestByte = k.length - 1 - (bitOffset >>> 3);
+			int bits = 0;
+			for (int j = 0; j<3 && lowestByte - j>=0; j++) {
+				bits |= (k[lowestByte - j] & 0xFF) << (8 * j);
+			}
+			int digit = (bits >>> (bitOffset & 7)) & mask;
+			if (digit != 0) {
+				result = result.add(points[i][digit - 1]);
+			}
+		}
+		return result;
+	}
+}
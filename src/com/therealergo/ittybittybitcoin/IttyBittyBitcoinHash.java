@@ -0,0 +1,283 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+/** SHA-256 and RIPEMD-160 kernels specialized for the short, fixed-length inputs of address derivation: 33 or 65-byte public points, 32-byte digests, and 21-byte versioned public keys. Every input is hashed straight from the caller's array into the caller's output array, and digests that are hashed again are passed on as words with their padding precomputed, never converted back to bytes. Instances keep reusable scratch space, so they are not thread-safe and should be used by one thread at a time. */
+public class IttyBittyBitcoinHash {
+	/** Number of bytes in each SHA-256 and RIPEMD-160 message block. */
+	private static final int blockSize = 64;
+	
+	/** The SHA-256 round constants. */
+	private static final int[] sha256K = new int[] {
+			0x428A2F98, 0x71374491, 0xB5C0FBCF, 0xE9B5DBA5, 0x3956C25B, 0x59F111F1, 0x923F82A4, 0xAB1C5ED5,
+			0xD807AA98, 0x12835B01, 0x243185BE, 0x550C7DC3, 0x72BE5D74, 0x80DEB1FE, 0x9BDC06A7, 0xC19BF174,
+			0xE49B69C1, 0xEFBE4786, 0x0FC19DC6, 0x240CA1CC, 0x2DE92C6F, 0x4A7484AA, 0x5CB0A9DC, 0x76F988DA,
+			0x983E5152, 0xA831C66D, 0xB00327C8, 0xBF597FC7, 0xC6E00BF3, 0xD5A79147, 0x06CA6351, 0x14292967,
+			0x27B70A85, 0x2E1B2138, 0x4D2C6DFC, 0x53380D13, 0x650A7354, 0x766A0ABB, 0x81C2C92E, 0x92722C85,
+			0xA2BFE8A1, 0xA81A664B, 0xC24B8B70, 0xC76C51A3, 0xD192E819, 0xD6990624, 0xF40E3585, 0x106AA070,
+			0x19A4C116, 0x1E376C08, 0x2748774C, 0x34B0BCB5, 0x391C0CB3, 0x4ED8AA4A, 0x5B9CCA4F, 0x682E6FF3,
+			0x748F82EE, 0x78A5636F, 0x84C87814, 0x8CC70208, 0x90BEFFFA, 0xA4506CEB, 0xBEF9A3F7, 0xC67178F2};
+	/** The SHA-256 initial hash value. */
+	private static final int[] sha256Initial = new int[] {
+			0x6A09E667, 0xBB67AE85, 0x3C6EF372, 0xA54FF53A, 0x510E527F, 0x9B05688C, 0x1F83D9AB, 0x5BE0CD19};
+	
+	/** The RIPEMD-160 round constants of the left line, one per group of 16 steps. */
+	private static final int[] ripemd160KLeft  = new int[] {0x00000000, 0x5A827999, 0x6ED9EBA1, 0x8F1BBCDC, 0xA953FD4E};
+	/** The RIPEMD-160 round constants of the right line, one per group of 16 steps. */
+	private static final int[] ripemd160KRight = new int[] {0x50A28BE6, 0x5C4DD124, 0x6D703EF3, 0x7A6D76E9, 0x00000000};
+	/** The message word read by each step of the RIPEMD-160 left line. */
+	private static final int[] ripemd160RLeft  = new int[] {
+			 0,  1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11, 12, 13, 14, 15,
+			 7,  4, 13,  1, 10,  6, 15,  3, 12,  0,  9,  5,  2, 14, 11,  8,
+			 3, 10, 14,  4,  9, 15,  8,  1,  2,  7,  0,  6, 13, 11,  5, 12,
+			 1,  9, 11, 10,  0,  8, 12,  4, 13,  3,  7, 15, 14,  5,  6,  2,
+			 4,  0,  5,  9,  7, 12,  2, 10, 14,  1,  3,  8, 11,  6, 15, 13};
+	/** The message word read by each step of the RIPEMD-160 right line. */
+	private static final int[] ripemd160RRight = new int[] {
+			 5, 14,  7,  0,  9,  2, 11,  4, 13,  6, 15,  8,  1, 10,  3, 12,
+			 6, 11,  3,  7,  0, 13,  5, 10, 14, 15,  8, 12,  4,  9,  1,  2,
+			15,  5,  1,  3,  7, 14,  6,  9, 11,  8, 12,  2, 10,  0,  4, 13,
+			 8,  6,  4,  1,  3, 11, 15,  0,  5, 12,  2, 13,  9,  7, 10, 14,
+			12, 15, 10,  4,  1,  5,  8,  7,  6,  2, 13, 14,  0,  3,  9, 11};
+	/** The rotation applied by each step of the RIPEMD-160 left line. */
+	private static final int[] ripemd160SLeft  = new int[] {
+			11, 14, 15, 12,  5,  8,  7,  9, 11, 13, 14, 15,  6,  7,  9,  8,
+			 7,  6,  8, 13, 11,  9,  7, 15,  7, 12, 15,  9, 11,  7, 13, 12,
+			11, 13,  6,  7, 14,  9, 13, 15, 14,  8, 13,  6,  5, 12,  7,  5,
+			11, 12, 14, 15, 14, 15,  9,  8,  9, 14,  5,  6,  8,  6,  5, 12,
+			 9, 15,  5, 11,  6,  8, 13, 12,  5, 12, 13, 14, 11,  8,  5,  6};
+	/** The rotation applied by each step of the RIPEMD-160 right line. */
+	private static final int[] ripemd160SRight = new int[] {
+			 8,  9,  9, 11, 13, 15, 15,  5,  7,  7,  8, 11, 14, 14, 12,  6,
+			 9, 13, 15,  7, 12,  8,  9, 11,  7,  7, 12,  7,  6, 15, 13, 11,
+			 9,  7, 15, 11,  8,  6,  6, 14, 12, 13,  5, 14, 13, 13,  7,  5,
+			15,  5,  8, 11, 14, 14,  6, 14,  6,  9, 12,  9, 12,  5, 15,  8,
+			 8,  5, 12,  9, 12,  5, 14,  6,  8, 13,  6,  5, 15, 13, 11, 11};
+	
+	/** Scratch SHA-256 message schedule. */
+	private final int[] schedule = new int[64];
+	/** Scratch SHA-256 hash state, which holds the most recent SHA-256 digest as big-endian words. */
+	private final int[] state    = new int[8];
+	/** Scratch RIPEMD-160 message block. */
+	private final int[] block    = new int[16];
+	/** Scratch RIPEMD-160 hash state. */
+	private final int[] ripemd   = new int[5];
+	
+	/** Compute the SHA-256 hash of the 'length' bytes at 'offset' in 'value,' writing the 32-byte digest at 'outOffset' in 'out.' */
+	public void sha256(byte[] value, int offset, int length, byte[] out, int outOffset) {
+		sha256State(value, offset, length);
+		writeBigEndian(state, 8, out, outOffset);
+	}
+	
+	/** Compute the SHA-256 hash of the SHA-256 hash of the 'length' bytes at 'offset' in 'value,' writing the 32-byte digest at 'outOffset' in 'out.' */
+	public void doubleSha256(byte[] value, int offset, int length, byte[] out, int outOffset) {
+		sha256State(value, offset, length);
+		sha256OfState();
+		writeBigEndian(state, 8, out, outOffset);
+	}
+	
+	/** Compute the checksum of the 'length' bytes at 'offset' in 'value,' which is the first 4 bytes of their double SHA-256 hash, writing it at 'outOffset' in 'out.' */
+	public void checksum(byte[] value, int offset, int length, byte[] out, int outOffset) {
+		sha256State(value, offset, length);
+		sha256OfState();
+		writeBigEndian(state, 1, out, outOffset);
+	}
+	
+	/** Compute the RIPEMD-160 hash of the 32 bytes at 'offset' in 'value,' writing the 20-byte digest at 'outOffset' in 'out.' */
+	public void ripemd160Of32(byte[] value, int offset, byte[] out, int outOffset) {
+		for (int i = 0; i<8; i++) {
+			block[i] = (value[offset + 4*i    ] & 0xFF)        | (value[offset + 4*i + 1] & 0xFF) <<  8 |
+					   (value[offset + 4*i + 2] & 0xFF) << 16  | (value[offset + 4*i + 3] & 0xFF) << 24;
+		}
+		ripemd160Of32Block(out, outOffset);
+	}
+	
+	/** Compute the RIPEMD-160 hash of the SHA-256 hash of the 'length' bytes at 'offset' in 'value,' turning a public point into a public key, and write the 20-byte public key at 'outOffset' in 'out.' */
+	public void hash160(byte[] value, int offset, int length, byte[] out, int outOffset) {
+		sha256State(value, offset, length);
+		
+		// RIPEMD-160 reads little-endian words, so each big-endian SHA-256 state word only needs its bytes reversed
+		for (int i = 0; i<8; i++) {
+			block[i] = Integer.reverseBytes(state[i]);
+		}
+		ripemd160Of32Block(out, outOffset);
+	}
+	
+	/** Compute the 25-byte address of the 20-byte public key at 'offset' in 'publicKey,' which is the version byte 0x00, the public key, and the checksum of both, writing it at 'outOffset' in 'out.' */
+	public void address(byte[] publicKey, int offset, byte[] out, int outOffset) {
+		out[outOffset] = 0;
+		System.arraycopy(publicKey, offset, out, outOffset + 1, 20);
+		checksum(out, outOffset, 21, out, outOffset + 21);
+	}
+	
+	/** Run SHA-256 over the 'length' bytes at 'offset' in 'value,' leaving the digest in 'state.' */
+	private void sha256State(byte[] value, int offset, int length) {
+		System.arraycopy(sha256Initial, 0, state, 0, 8);
+		
+		// Compress every full block straight from the input
+		int end = offset + length;
+		int position = offset;
+		for (; end - position >= blockSize; position += blockSize) {
+			for (int i = 0; i<16; i++) {
+				schedule[i] = IttyBittyBitcoinBytes.readInt(value, position + 4*i);
+			}
+			sha256Compress();
+		}
+		
+		// Pack the remaining bytes, the 0x80 terminator, and the bit length into the final one or two blocks
+		int remaining = end - position;
+		for (int i = 0; i<16; i++) {
+			schedule[i] = 0;
+		}
+		for (int i = 0; i<remaining; i++) {
+			schedule[i >>> 2] |= (value[position + i] & 0xFF) << (24 - 8*(i & 3));
+		}
+		schedule[remaining >>> 2] |= 0x80 << (24 - 8*(remaining & 3));
+		if (remaining >= 56) {
+			sha256Compress();
+			for (int i = 0; i<16; i++) {
+				schedule[i] = 0;
+			}
+		}
+		long bitLength = 8L * length;
+		schedule[14] = (int)(bitLength >>> 32);
+		schedule[15] = (int) bitLength;
+		sha256Compress();
+	}
+	
+	/** Run SHA-256 over the 32-byte digest in 'state,' leaving the new digest in 'state.' A 32-byte message always fits in one block, whose padding is fixed. */
+	private void sha256OfState() {
+		System.arraycopy(state, 0, schedule, 0, 8);
+		schedule[ 8] = 0x80000000;
+		schedule[ 9] = 0;
+		schedule[10] = 0;
+		schedule[11] = 0;
+		schedule[12] = 0;
+		schedule[13] = 0;
+		schedule[14] = 0;
+		schedule[15] = 256;
+		System.arraycopy(sha256Initial, 0, state, 0, 8);
+		sha256Compress();
+	}
+	
+	/** Compress the block in the first 16 words of 'schedule' into 'state.' */
+	private void sha256Compress() {
+		int[] w = schedule;
+		for (int i = 16; i<64; i++) {
+			int s0 = Integer.rotateRight(w[i - 15],  7) ^ Integer.rotateRight(w[i - 15], 18) ^ (w[i - 15] >>>  3);
+			int s1 = Integer.rotateRight(w[i -  2], 17) ^ Integer.rotateRight(w[i -  2], 19) ^ (w[i -  2] >>> 10);
+			w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+		}
+		int a = state[0], b = state[1], c = state[2], d = state[3];
+		int e = state[4], f = state[5], g = state[6], h = state[7];
+		for (int i = 0; i<64; i++) {
+			int t1 = h + (Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25)) + ((e & f) ^ (~e & g)) + sha256K[i] + w[i];
+			int t2 =     (Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22)) + ((a & b) ^ (a & c) ^ (b & c));
+			h = g;
+			g = f;
+			f = e;
+			e = d + t1;
+			d = c;
+			c = b;
+			b = a;
+			a = t1 + t2;
+		}
+		state[0] += a; state[1] += b; state[2] += c; state[3] += d;
+		state[4] += e; state[5] += f; state[6] += g; state[7] += h;
+	}
+	
+	/** Run RIPEMD-160 over the 32-byte message whose little-endian words are in the first 8 words of 'block,' writing the 20-byte digest at 'outOffset' in 'out.' A 32-byte message always fits in one block, whose padding is fixed. */
+	private void ripemd160Of32Block(byte[] out, int outOffset) {
+		block[ 8] = 0x80;
+		block[ 9] = 0;
+		block[10] = 0;
+		block[11] = 0;
+		block[12] = 0;
+		block[13] = 0;
+		block[14] = 256;
+		block[15] = 0;
+		
+		ripemd[0] = 0x67452301;
+		ripemd[1] = 0xEFCDAB89;
+		ripemd[2] = 0x98BADCFE;
+		ripemd[3] = 0x10325476;
+		ripemd[4] = 0xC3D2E1F0;
+		ripemd160Compress();
+		for (int i = 0; i<5; i++) {
+			int word = ripemd[i];
+			out[outOffset + 4*i    ] = (byte) word;
+			out[outOffset + 4*i + 1] = (byte)(word >>>  8);
+			out[outOffset + 4*i + 2] = (byte)(word >>> 16);
+			out[outOffset + 4*i + 3] = (byte)(word >>> 24);
+		}
+	}
+	
+	/** Compress the block in 'block' into 'ripemd,' running the left and right lines side by side. */
+	private void ripemd160Compress() {
+		int al = ripemd[0], bl = ripemd[1], cl = ripemd[2], dl = ripemd[3], el = ripemd[4];
+		int ar = al, br = bl, cr = cl, dr = dl, er = el;
+		for (int j = 0; j<80; j++) {
+			int round = j >>> 4;
+			int t = Integer.rotateLeft(al + ripemd160F(    round, bl, cl, dl) + block[ripemd160RLeft [j]] + ripemd160KLeft [round], ripemd160SLeft [j]) + el;
+			al = el;
+			el = dl;
+			dl = Integer.rotateLeft(cl, 10);
+			cl = bl;
+			bl = t;
+			t = Integer.rotateLeft(ar + ripemd160F(4 - round, br, cr, dr) + block[ripemd160RRight[j]] + ripemd160KRight[round], ripemd160SRight[j]) + er;
+			ar = er;
+			er = dr;
+			dr = Integer.rotateLeft(cr, 10);
+			cr = br;
+			br = t;
+		}
+		int t     = ripemd[1] + cl + dr;
+		ripemd[1] = ripemd[2] + dl + er;
+		ripemd[2] = ripemd[3] + el + ar;
+		ripemd[3] = ripemd[4] + al + br;
+		ripemd[4] = ripemd[0] + bl + cr;
+		ripemd[0] = t;
+	}
+	
+	/** The RIPEMD-160 boolean function of the given round. */
+	private static int ripemd160F(int round, int x, int y, int z) {
+		switch (round) {
+			case 0:  return x ^ y ^ z;
+			case 1:  return (x & y) | (~x & z);
+			case 2:  return (x | ~y) ^ z;
+			case 3:  return (x & z) | (y & ~z);
+			default: return x ^ (y | ~z);
+		}
+	}
+	
+	/** Write the first 'count' words of 'words' as big-endian bytes at 'outOffset' in 'out.' */
+	private static void writeBigEndian(int[] words, int count, byte[] out, int outOffset) {
+		for (int i = 0; i<count; i++) {
+			int word = words[i];
+			out[outOffset + 4*i    ] = (byte)(word >>> 24);
+			out[outOffset + 4*i + 1] = (byte)(word >>> 16);
+			out[outOffset + 4*i + 2] = (byte)(word >>>  8);
+			out[outOffset + 4*i + 3] = (byte) word;
+		}
+	}
+}
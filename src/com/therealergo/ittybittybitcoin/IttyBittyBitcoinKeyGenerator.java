@@ -0,0 +1,237 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.prng.SP800SecureRandomBuilder;
+
+/** Generates random private keys from a per-thread SP 800-90A Hash_DRBG, and mints large numbers of random keysets on a pipeline of producer threads. Each thread's DRBG is seeded from SecureRandom and draws its output in bulk, and every private key is a full 256-bit scalar checked to lie in [1, n), where n is the order of the secp256k1 curve. */
+public class IttyBittyBitcoinKeyGenerator {
+	/** Interface used to receive the keysets minted by generate(...). */
+	public static interface KeysetListener {
+		/** Called on the thread that called generate(...), one batch at a time. Keyset i has its 32-byte private key at 32 * i in 'privateKeys' and its 25-byte address at 25 * i in 'addresses,' for every i less than 'count.' The arrays are reused once this returns. */
+		public void keysets(byte[] privateKeys, byte[] addresses, int count);
+	}
+	
+	/** Number of bytes drawn from a thread's DRBG at once, which holds 1024 private keys and stays within a single Hash_DRBG request. */
+	private static final int drbgBufferSize = 32 * 1024;
+	/** The order n of the secp256k1 curve as a 32-byte big-endian number, against which private keys are checked. */
+	private static final byte[] curveOrder = IttyBittyBitcoinCandidateGenerator.toPrivateKeyBytes(IttyBittyBitcoin.getSharedDomain().getN());
+	
+	/** The DRBG and output buffer of one thread. */
+	private static class ThreadState {
+		/** This thread's DRBG. */
+		private final SecureRandom drbg;
+		/** Bytes drawn from the DRBG in bulk, of which those from 'position' onwards are unused. */
+		private final byte[]       buffer = new byte[drbgBufferSize];
+		/** The position of the first unused byte in 'buffer.' */
+		private       int          position = drbgBufferSize;
+		
+		/** Create and seed a new DRBG. The nonce comes from SecureRandom, and the personalization string separates threads that happen to be seeded at the same moment. */
+		private ThreadState() {
+			SecureRandom entropy = new SecureRandom();
+			byte[] nonce = new byte[16];
+			entropy.nextBytes(nonce);
+			byte[] personalization = ByteBuffer.allocate(16).putLong(Thread.currentThread().getId()).putLong(System.nanoTime()).array();
+			drbg = new SP800SecureRandomBuilder(entropy, false).setPersonalizationString(personalization).buildHash(new SHA256Digest(), nonce, false);
+		}
+	}
+	
+	/** The ThreadState of each thread that has generated a private key. */
+	private static final ThreadLocal<ThreadState> threadState = new ThreadLocal<ThreadState>() {
+		@Override
+		protected ThreadState initialValue() {
+			return new ThreadState();
+		}
+	};
+	
+	/** The IttyBittyBitcoin instance shared by every producer thread, which keeps its hashing state per-thread. */
+	private final IttyBittyBitcoin ibb;
+	/** The number of producer threads that generate(...) runs. */
+	private final int              threadCount;
+	/** The number of keysets that each producer mints per batch. */
+	private final int              batchSize;
+	
+	/** Create a new keyset generator that mints keysets on 'threadCount' producer threads, in batches of 'batchSize' keysets. */
+	public IttyBittyBitcoinKeyGenerator(IttyBittyBitcoin ibb, int threadCount, int batchSize) {
+		if (threadCount < 1) {
+			throw new RuntimeException("Unable to generate keysets: At least one producer thread is required!");
+		}
+		if (batchSize < 1) {
+			throw new RuntimeException("Unable to generate keysets: Batch size must be at least 1!");
+		}
+		this.ibb         = ibb;
+		this.threadCount = threadCount;
+		this.batchSize   = batchSize;
+	}
+	
+	/** Write a new random private key, from this thread's DRBG, as 32 bytes at 'offset' in 'out.' */
+	public static void nextPrivateKey(byte[] out, int offset) {
+		ThreadState state = threadState.get();
+		do {
+			if (state.position == drbgBufferSize) {
+				state.drbg.nextBytes(state.buffer);
+				state.position = 0;
+			}
+			System.arraycopy(state.buffer, state.position, out, offset, 32);
+			
+			// Wipe the used bytes, so that keys which have already been handed out do not linger in the buffer
+			for (int i = 0; i<32; i++) {
+				state.buffer[state.position + i] = 0;
+			}
+			state.position += 32;
+		} while (!isValidPrivateKey(out, offset));
+	}
+	
+	/** Returns a new random 32-byte private key from this thread's DRBG. */
+	public static byte[] nextPrivateKey() {
+		byte[] privateKey = new byte[32];
+		nextPrivateKey(privateKey, 0);
+		return privateKey;
+	}
+	
+	/** Test whether the 32-byte big-endian number at 'offset' in 'value' is a valid private key, lying in [1, n). Only about one value in 2^128 is not. */
+	static boolean isValidPrivateKey(byte[] value, int offset) {
+		boolean zero = true;
+		for (int i = 0; i<32; i++) {
+			zero &= value[offset + i] == 0;
+		}
+		if (zero) {
+			return false;
+		}
+		for (int i = 0; i<32; i++) {
+			int a = value[offset + i] & 0xFF;
+			int b = curveOrder[i]     & 0xFF;
+			if (a != b) {
+				return a < b;
+			}
+		}
+		return false;
+	}
+	
+	/** A reusable batch of keysets, passed from a producer thread to the consumer and back. */
+	private static class KeysetBatch {
+		/** The batch's private keys, 32 bytes each. */
+		private final byte[] privateKeys;
+		/** The batch's addresses, 25 bytes each. */
+		private final byte[] addresses;
+		/** The indices of the batch's keysets that are on the watch list, of which the first 'watchedCount' are in use. */
+		private final int[]  watched;
+		/** The number of keysets in the batch, or -1 if a producer failed. */
+		private       int    count;
+		/** The number of the batch's keysets that are on the watch list. */
+		private       int    watchedCount;
+		
+		private KeysetBatch(int batchSize) {
+			privateKeys = new byte[32 * batchSize];
+			addresses   = new byte[25 * batchSize];
+			watched     = new int[batchSize];
+		}
+	}
+	
+	/** Mint 'count' random keysets whose addresses are in compressed form if 'compressed' is true, passing them to 'listener' in batches as they are produced. Producer threads mint batches in parallel while the calling thread consumes them, and at most two batches per producer exist at once, so memory use does not depend on 'count.' Returns once every keyset has been passed to the listener. */
+	public void generate(long count, boolean compressed, KeysetListener listener) throws InterruptedException {
+		generate(count, compressed, listener, null, null);
+	}
+	
+	/** Mint keysets as above, but also check every minted public key against 'watchList,' passing each keyset on the list to 'watchListener' on the calling thread after its batch has been passed to 'listener.' The producers query the mapped watch list without allocating. */
+	public void generate(long count, boolean compressed, KeysetListener listener, IttyBittyBitcoinWatchList watchList, IttyBittyBitcoinWatchList.MatchListener watchListener) throws InterruptedException {
+		BlockingQueue<KeysetBatch> free = new ArrayBlockingQueue<KeysetBatch>(2 * threadCount);
+		BlockingQueue<KeysetBatch> full = new ArrayBlockingQueue<KeysetBatch>(2 * threadCount + 1);
+		for (int i = 0; i<2 * threadCount; i++) {
+			free.add(new KeysetBatch(batchSize));
+		}
+		AtomicLong remaining = new AtomicLong(count);
+		AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+		
+		// Each producer claims up to a batch of the remaining keysets at a time, until none are left
+		Thread[] producers = new Thread[threadCount];
+		for (int i = 0; i<threadCount; i++) {
+			producers[i] = new Thread(() -> {
+				try {
+					byte[] privateKey = new byte[32];
+					byte[] publicKey  = new byte[20];
+					while (true) {
+						long claimed = remaining.getAndAdd(-batchSize);
+						if (claimed <= 0) {
+							return;
+						}
+						KeysetBatch batch = free.take();
+						batch.count        = (int)Math.min(claimed, batchSize);
+						batch.watchedCount = 0;
+						for (int j = 0; j<batch.count; j++) {
+							nextPrivateKey(privateKey, 0);
+							System.arraycopy(privateKey, 0, batch.privateKeys, 32 * j, 32);
+							// Every minted key is new, so it bypasses the derivation cache rather than evicting its hot entries and lingering there
+							byte[] publicPoint = ibb.derivePublicPoint(privateKey, compressed);
+							ibb.publicPointToPublicKey(publicPoint, 0, publicPoint.length, publicKey, 0);
+							if (watchList != null && watchList.contains(publicKey, 0)) {
+								batch.watched[batch.watchedCount++] = j;
+							}
+							ibb.publicKeyToAddress(publicKey, 0, batch.addresses, 25 * j);
+						}
+						full.put(batch);
+					}
+				} catch (InterruptedException e) {
+					return;
+				} catch (RuntimeException e) {
+					// Wake the consumer with a failed batch, so that the error is not lost
+					failure.compareAndSet(null, e);
+					KeysetBatch failed = new KeysetBatch(0);
+					failed.count = -1;
+					full.offer(failed);
+				}
+			}, "IttyBittyBitcoin key generator " + i);
+			producers[i].setDaemon(true);
+			producers[i].start();
+		}
+		
+		// Consume batches in whatever order they are finished, returning each one to the producers once the listener is done with it
+		try {
+			for (long consumed = 0; consumed<count; ) {
+				KeysetBatch batch = full.take();
+				if (batch.count < 0) {
+					throw new RuntimeException("Unable to generate keysets!", failure.get());
+				}
+				listener.keysets(batch.privateKeys, batch.addresses, batch.count);
+				for (int i = 0; i<batch.watchedCount; i++) {
+					watchListener.matched(Arrays.copyOfRange(batch.privateKeys, 32 * batch.watched[i], 32 * batch.watched[i] + 32), compressed);
+				}
+				consumed += batch.count;
+				free.put(batch);
+			}
+		} finally {
+			for (Thread producer : producers) {
+				producer.interrupt();
+			}
+		}
+	}
+}
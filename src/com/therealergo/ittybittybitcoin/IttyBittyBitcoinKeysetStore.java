@@ -0,0 +1,474 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/** Append-only binary store of keysets, each a record of a 32-byte private key, a flag byte, and the 20-byte public key (RIPEMD-160 hash) it derives, at 53 bytes per keyset instead of about 130 as text. Records are appended through a FileChannel in batches. Alongside the store is an index file holding an open-addressing hash table from public key to record number, with linear probing, which is memory-mapped so that keysets can be looked up by address without reading the store into memory. The index is brought up to date with every flush. Instances are thread-safe. */
+public class IttyBittyBitcoinKeysetStore implements Closeable {
+	/** Magic number at the start of every keyset store file, the ASCII characters 'IBBK'. */
+	private static final int  magic             = 0x4942424B;
+	/** Magic number at the start of every keyset index file, the ASCII characters 'IBBX'. */
+	private static final int  indexMagic        = 0x49424258;
+	/** Version number of the keyset store file format. */
+	private static final int  fileVersion       = 1;
+	/** Version number of the keyset index file format. Version 2 added the watermark of the indexed records to the header. */
+	private static final int  indexVersion      = 2;
+	/** Number of bytes in a keyset store file's header: magic number, version, record size, and a reserved int. */
+	private static final int  headerSize        = 16;
+	/** Number of bytes in a keyset index file's header: magic number, version, slot count, the number of records indexed, and their watermark. */
+	private static final int  indexHeaderSize   = 32;
+	/** Number of bytes in each record: private key, flags, and public key. */
+	private static final int  recordSize        = 53;
+	/** Number of bytes in each slot of the index, which holds a public key and one more than its record number, so that an all-zero slot is empty. */
+	private static final int  slotSize          = 28;
+	/** Number of index slots mapped into memory per segment, keeping every segment below the 2 GiB limit of a single mapping. */
+	private static final long segmentSlots      = 1L << 26;
+	/** Number of records mapped into memory at once when reading the store file sequentially. */
+	private static final long segmentRecords    = 1L << 24;
+	/** Number of records buffered before they are written to the store file. */
+	private static final int  writeBatchRecords = 4096;
+	/** Record flag set when the keyset's address is in compressed form. */
+	private static final int  flagCompressed    = 1;
+	
+	/** The path of the store file. */
+	private final Path               path;
+	/** The path of the index file, which is the store file's path with '.index' appended. */
+	private final Path               indexPath;
+	/** The open store file. */
+	private final FileChannel        channel;
+	/** Records appended but not yet written to the store file. */
+	private final ByteBuffer         writeBuffer;
+	/** The number of records written to the store file. */
+	private       long               recordCount;
+	
+	/** The open index file. */
+	private       FileChannel        indexChannel;
+	/** The number of slots in the index, always a power of two. */
+	private       long               slotCount;
+	/** The number of records, from the first, that are in the index. */
+	private       long               indexedCount;
+	/** The mapped segments of the index, each holding 'segmentSlots' slots. */
+	private       MappedByteBuffer[] indexSegments;
+	/** The mapped header of the index. */
+	private       MappedByteBuffer   indexHeader;
+	
+	/** Open the keyset store at 'path,' creating it if it does not exist. A record left partly written by a crash is discarded, and a missing, stale, or corrupt index is rebuilt. */
+	public IttyBittyBitcoinKeysetStore(Path path) throws IOException {
+		this.path        = path;
+		this.indexPath   = Paths.get(path.toString() + ".index");
+		this.channel     = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.writeBuffer = ByteBuffer.allocate(writeBatchRecords * recordSize);
+		try {
+			if (channel.size() == 0) {
+				ByteBuffer header = ByteBuffer.allocate(headerSize);
+				header.putInt(magic).putInt(fileVersion).putInt(recordSize).putInt(0).flip();
+				writeFully(channel, header, 0);
+			}
+			ByteBuffer header = ByteBuffer.allocate(headerSize);
+			channel.read(header, 0);
+			header.flip();
+			if (header.remaining() < headerSize || header.getInt() != magic || header.getInt() != fileVersion || header.getInt() != recordSize) {
+				throw new RuntimeException("File is not an IttyBittyBitcoin keyset store: " + path);
+			}
+			recordCount = (channel.size() - headerSize) / recordSize;
+			channel.truncate(headerSize + recordCount * recordSize);
+			openIndex();
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+	
+	/** Write all of 'buffer' to 'channel' at 'position.' */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+	
+	/** Open the index file, rebuilding it if it is missing, corrupt, covers records that the store no longer holds, or was built for a different store file, and then index any records that it does not yet cover. */
+	private void openIndex() throws IOException {
+		long existingSlots   = 0;
+		long existingIndexed = -1;
+		if (Files.exists(indexPath) && Files.size(indexPath) >= indexHeaderSize) {
+			try (FileChannel existing = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+				ByteBuffer header = ByteBuffer.allocate(indexHeaderSize);
+				existing.read(header, 0);
+				header.flip();
+				if (header.getInt() == indexMagic && header.getInt() == indexVersion) {
+					existingSlots   = header.getLong();
+					existingIndexed = header.getLong();
+					long existingWatermark = header.getLong();
+					if (Long.bitCount(existingSlots) != 1 || existing.size() != indexHeaderSize + existingSlots * slotSize || existingIndexed < 0 || existingIndexed > recordCount || existingWatermark != watermark(existingIndexed)) {
+						existingIndexed = -1;
+					}
+				}
+			}
+		}
+		if (existingIndexed < 0) {
+			createIndex(nextPowerOfTwo(Math.max(2 * recordCount, 1024)));
+		} else {
+			mapIndex(existingSlots, existingIndexed);
+		}
+		updateIndex();
+	}
+	
+	/** Returns the watermark of the first 'count' records, which is the first 8 bytes of the SHA-256 hash of the first and last of them, or 0 if 'count' is 0. An index whose watermark does not match the store's records was left behind by some other store file, and is rebuilt rather than trusted. */
+	private long watermark(long count) throws IOException {
+		if (count == 0) {
+			return 0;
+		}
+		byte[] records = new byte[2 * recordSize];
+		System.arraycopy(readRecord(0        ), 0, records, 0         , recordSize);
+		System.arraycopy(readRecord(count - 1), 0, records, recordSize, recordSize);
+		byte[] digest = new byte[32];
+		new IttyBittyBitcoinHash().sha256(records, 0, records.length, digest, 0);
+		return IttyBittyBitcoinBytes.readLong(digest, 0);
+	}
+	
+	/** Create a new, empty index with the given number of slots, replacing any existing index file. The new index is written to a temporary file and then moved over the old one, after the old one is closed and unmapped, since a file that is still mapped can be neither resized nor replaced on Windows. */
+	private void createIndex(long slotCount) throws IOException {
+		Path temporaryPath = Paths.get(indexPath.toString() + ".tmp");
+		try (FileChannel temporary = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(indexHeaderSize);
+			header.putInt(indexMagic).putInt(indexVersion).putLong(slotCount).putLong(0).putLong(0).flip();
+			writeFully(temporary, header, 0);
+			
+			// Writing the last byte extends the file with zeroes, and an all-zero slot is empty
+			writeFully(temporary, ByteBuffer.allocate(1), indexHeaderSize + slotCount * slotSize - 1);
+		}
+		closeIndex();
+		try {
+			Files.move(temporaryPath, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporaryPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+		}
+		mapIndex(slotCount, 0);
+	}
+	
+	/** Map the index file, which holds 'slotCount' slots covering the first 'indexedCount' records. */
+	private void mapIndex(long slotCount, long indexedCount) throws IOException {
+		this.indexChannel  = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.slotCount     = slotCount;
+		this.indexedCount  = indexedCount;
+		this.indexHeader   = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexHeaderSize);
+		this.indexSegments = new MappedByteBuffer[(int)((slotCount + segmentSlots - 1) / segmentSlots)];
+		for (int i = 0; i<indexSegments.length; i++) {
+			long start = i * segmentSlots;
+			indexSegments[i] = indexChannel.map(FileChannel.MapMode.READ_WRITE, indexHeaderSize + start * slotSize, Math.min(segmentSlots, slotCount - start) * slotSize);
+		}
+	}
+	
+	/** Close the index file, if it is open, and release its mappings. */
+	private void closeIndex() throws IOException {
+		if (indexSegments != null) {
+			for (MappedByteBuffer segment : indexSegments) {
+				unmap(segment);
+			}
+			unmap(indexHeader);
+		}
+		indexSegments = null;
+		indexHeader   = null;
+		if (indexChannel != null) {
+			indexChannel.close();
+			indexChannel = null;
+		}
+	}
+	
+	/** Release the given mapping now, rather than whenever it is garbage collected, using sun.misc.Unsafe.invokeCleaner(...) on Java 9 and later or the buffer's own cleaner on Java 8. If the running JVM offers neither, the mapping is left to the garbage collector, and replacing the index may then fail on Windows. The buffer must never be used again. */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner;
+			try {
+				invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			} catch (NoSuchMethodException e) {
+				invokeCleaner = null;
+			}
+			if (invokeCleaner != null) {
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			} else {
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Fall back to releasing the mapping when it is garbage collected
+		}
+	}
+	
+	/** Index every record written to the store file that is not yet in the index, first growing the index if that would leave it more than half full. */
+	private void updateIndex() throws IOException {
+		if (indexedCount == recordCount) {
+			return;
+		}
+		if (2 * recordCount > slotCount) {
+			createIndex(nextPowerOfTwo(2 * recordCount));
+		}
+		
+		// Read the unindexed records through a mapping of just the store file's tail
+		byte[] publicKey = new byte[20];
+		for (long first = indexedCount; first<recordCount; first += segmentRecords) {
+			long count = Math.min(segmentRecords, recordCount - first);
+			MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, headerSize + first * recordSize, count * recordSize);
+			for (int i = 0; i<count; i++) {
+				records.position(i * recordSize + 33);
+				records.get(publicKey);
+				insert(publicKey, first + i);
+			}
+		}
+		indexedCount = recordCount;
+		for (MappedByteBuffer segment : indexSegments) {
+			segment.force();
+		}
+		
+		// Record the new indexed count last, so that an interrupted update is redone rather than trusted
+		indexHeader.putLong(24, watermark(indexedCount));
+		indexHeader.putLong(16, indexedCount);
+		indexHeader.force();
+	}
+	
+	/** Insert the given public key with the given record number into the index, unless the public key is already in it. */
+	private void insert(byte[] publicKey, long record) {
+		long high   = IttyBittyBitcoinBytes.readLong(publicKey,  0);
+		long middle = IttyBittyBitcoinBytes.readLong(publicKey,  8);
+		int  low    = IttyBittyBitcoinBytes.readInt (publicKey, 16);
+		for (long slot = high & (slotCount - 1); ; slot = (slot + 1) & (slotCount - 1)) {
+			MappedByteBuffer segment = indexSegments[(int)(slot / segmentSlots)];
+			int position = (int)(slot % segmentSlots) * slotSize;
+			long slotRecord = segment.getLong(position + 20);
+			if (slotRecord == 0) {
+				segment.putLong(position     , high      );
+				segment.putLong(position +  8, middle    );
+				segment.putInt (position + 16, low       );
+				segment.putLong(position + 20, record + 1);
+				return;
+			}
+			if (segment.getLong(position) == high && segment.getLong(position + 8) == middle && segment.getInt(position + 16) == low) {
+				return;
+			}
+		}
+	}
+	
+	/** Returns the smallest power of two that is at least 'value.' */
+	private static long nextPowerOfTwo(long value) {
+		return Long.highestOneBit(value - 1) << 1;
+	}
+	
+	/** Append a keyset of the 32-byte private key at 'offset' in 'privateKey,' whose address is in compressed form if 'compressed' is true, and the 20-byte public key it derives at 'publicKeyOffset' in 'publicKey.' The keyset is buffered, and is written and indexed by the next flush(). */
+	public synchronized void append(byte[] privateKey, int offset, boolean compressed, byte[] publicKey, int publicKeyOffset) throws IOException {
+		if (!writeBuffer.hasRemaining()) {
+			flush();
+		}
+		writeBuffer.put(privateKey, offset, 32);
+		writeBuffer.put((byte)(compressed ? flagCompressed : 0));
+		writeBuffer.put(publicKey, publicKeyOffset, 20);
+	}
+	
+	/** Append a keyset of the given private key, deriving its public key in the given form. */
+	public void append(IttyBittyBitcoin ibb, byte[] privateKey, boolean compressed) throws IOException {
+		if (privateKey.length != 32) {
+			throw new RuntimeException("Unable to store keyset: Private key must be 32 bytes!");
+		}
+		append(privateKey, 0, compressed, ibb.privateKeyToPublicKey(privateKey, compressed), 0);
+	}
+	
+	/** Write every buffered keyset to the store file in one batch, and bring the index up to date. */
+	public synchronized void flush() throws IOException {
+		writeBuffer.flip();
+		int records = writeBuffer.remaining() / recordSize;
+		writeFully(channel, writeBuffer, headerSize + recordCount * recordSize);
+		writeBuffer.clear();
+		recordCount += records;
+		updateIndex();
+	}
+	
+	/** Returns the number of keysets in this store, including any not yet flushed. */
+	public synchronized long getRecordCount() {
+		return recordCount + writeBuffer.position() / recordSize;
+	}
+	
+	/** Look up the 20-byte public key at 'offset' in 'publicKey' in the index, returning the number of the first record holding it, or -1 if no flushed record does. */
+	public synchronized long find(byte[] publicKey, int offset) {
+		long high   = IttyBittyBitcoinBytes.readLong(publicKey, offset     );
+		long middle = IttyBittyBitcoinBytes.readLong(publicKey, offset +  8);
+		int  low    = IttyBittyBitcoinBytes.readInt (publicKey, offset + 16);
+		for (long slot = high & (slotCount - 1); ; slot = (slot + 1) & (slotCount - 1)) {
+			MappedByteBuffer segment = indexSegments[(int)(slot / segmentSlots)];
+			int position = (int)(slot % segmentSlots) * slotSize;
+			long slotRecord = segment.getLong(position + 20);
+			if (slotRecord == 0) {
+				return -1;
+			}
+			if (segment.getLong(position) == high && segment.getLong(position + 8) == middle && segment.getInt(position + 16) == low) {
+				return slotRecord - 1;
+			}
+		}
+	}
+	
+	/** Look up the given base-58 address, returning the number of the first record whose keyset has that address, or -1 if there is none. */
+	public long findAddress(IttyBittyBitcoin ibb, String addressBase58) {
+		byte[] address = ibb.decodeBase58(addressBase58);
+		if (address.length != 25 || address[0] != 0) {
+			throw new RuntimeException("Unable to look up keyset: '" + addressBase58 + "' is not a pay-to-public-key-hash address!");
+		}
+		return find(address, 1);
+	}
+	
+	/** Read the record with the given number, returning its 53 bytes: private key, flags, and public key. */
+	private synchronized byte[] readRecord(long record) throws IOException {
+		if (record < 0 || record >= recordCount) {
+			throw new RuntimeException("Unable to read keyset: Record " + record + " has not been written!");
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(recordSize);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, headerSize + record * recordSize + buffer.position()) < 0) {
+				throw new RuntimeException("Keyset store file is truncated: " + path);
+			}
+		}
+		return buffer.array();
+	}
+	
+	/** Returns the 32-byte private key of the given record. */
+	public byte[] getPrivateKey(long record) throws IOException {
+		byte[] privateKey = new byte[32];
+		System.arraycopy(readRecord(record), 0, privateKey, 0, 32);
+		return privateKey;
+	}
+	
+	/** Returns whether the address of the given record is in compressed form. */
+	public boolean isCompressed(long record) throws IOException {
+		return (readRecord(record)[32] & flagCompressed) != 0;
+	}
+	
+	/** Returns the 20-byte public key of the given record. */
+	public byte[] getPublicKey(long record) throws IOException {
+		byte[] publicKey = new byte[20];
+		System.arraycopy(readRecord(record), 33, publicKey, 0, 20);
+		return publicKey;
+	}
+	
+	/** Write every keyset in this store to 'output' as text, one hexadecimal private key and base-58 address per line, in the order they were appended. Returns the number of keysets written. */
+	public synchronized long exportText(IttyBittyBitcoin ibb, Path output) throws IOException {
+		flush();
+		byte[] privateKey = new byte[32];
+		byte[] publicKey  = new byte[20];
+		byte[] address    = new byte[25];
+		try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.US_ASCII)) {
+			for (long first = 0; first<recordCount; first += segmentRecords) {
+				long count = Math.min(segmentRecords, recordCount - first);
+				MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, headerSize + first * recordSize, count * recordSize);
+				for (int i = 0; i<count; i++) {
+					records.get(privateKey);
+					records.get();
+					records.get(publicKey);
+					ibb.publicKeyToAddress(publicKey, 0, address, 0);
+					writer.write(ibb.encodeHex(privateKey));
+					writer.write(' ');
+					writer.write(ibb.encodeBase58(address));
+					writer.write('\n');
+				}
+			}
+		}
+		return recordCount;
+	}
+	
+	/** Append every keyset in 'input,' a text file of one hexadecimal private key and base-58 address per line as written by exportText(...) or 'generateRandom,' to this store. The form of each address is found by deriving both, and a line whose address matches neither is rejected. Blank lines are skipped. Returns the number of keysets appended. */
+	public synchronized long importText(IttyBittyBitcoin ibb, Path input) throws IOException {
+		long imported = 0;
+		long lineNumber = 0;
+		try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII)) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty()) {
+					continue;
+				}
+				String[] parts = line.split("\\s+");
+				byte[] privateKey;
+				byte[] address;
+				try {
+					if (parts.length != 2) {
+						throw new RuntimeException("Expected a private key and an address!");
+					}
+					privateKey = ibb.decodeHex(parts[0]);
+					address    = ibb.decodeBase58(parts[1]);
+				} catch (RuntimeException e) {
+					throw new RuntimeException("Invalid keyset on line " + lineNumber + " of keyset file!", e);
+				}
+				if (privateKey.length != 32 || address.length != 25) {
+					throw new RuntimeException("Invalid keyset on line " + lineNumber + " of keyset file!");
+				}
+				
+				// The compressed form is by far the more common, so it is tried first
+				byte[] publicKey = ibb.privateKeyToPublicKey(privateKey, true);
+				boolean compressed = Arrays.equals(ibb.publicKeyToAddress(publicKey), address);
+				if (!compressed) {
+					publicKey = ibb.privateKeyToPublicKey(privateKey, false);
+					if (!Arrays.equals(ibb.publicKeyToAddress(publicKey), address)) {
+						throw new RuntimeException("Address on line " + lineNumber + " of keyset file does not belong to its private key!");
+					}
+				}
+				append(privateKey, 0, compressed, publicKey, 0);
+				imported++;
+			}
+		}
+		flush();
+		return imported;
+	}
+	
+	/** Flush any buffered keysets, and close the store and index files. */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			if (channel.isOpen() && writeBuffer.position() > 0) {
+				flush();
+			}
+		} finally {
+			closeIndex();
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.util.List;
+
+/** Matches public keys (RIPEMD-160 hashes) against many vanity prefixes at once. Every prefix is compiled into its ranges as IttyBittyBitcoinPrefixMatcher does, and the ranges of all prefixes are merged into one index sorted by their lowest public key. Each public key is then located in the index with a binary search, so that testing it against thousands of prefixes costs little more than testing it against one. As with IttyBittyBitcoinPrefixMatcher, hits should be confirmed against the full base-58 address. Instances are immutable and may be shared between threads. */
+public class IttyBittyBitcoinMultiPrefixMatcher {
+	/** The vanity prefixes that this matcher was compiled from, in the order they were given. */
+	private final String[] vanities;
+	/** The largest number of prefixes that any single public key can match. */
+	private final int      maxMatches;
+	
+	/** The index of the prefix that each range belongs to, with ranges sorted by their lowest public key. */
+	private final int [] rangePrefix;
+	/** The upper 64 bits of the lowest public key of each range. */
+	private final long[] rangeLowHigh;
+	/** The middle 64 bits of the lowest public key of each range. */
+	private final long[] rangeLowMiddle;
+	/** The lower 32 bits of the lowest public key of each range. */
+	private final int [] rangeLowLow;
+	/** The upper 64 bits of the highest public key of each range. */
+	private final long[] rangeHighHigh;
+	/** The middle 64 bits of the highest public key of each range. */
+	private final long[] rangeHighMiddle;
+	/** The lower 32 bits of the highest public key of each range. */
+	private final int [] rangeHighLow;
+	/** The upper 64 bits of the highest public key of this range and every range before it, used to stop scanning back through overlapping ranges. */
+	private final long[] reachHigh;
+	/** The middle 64 bits of the highest public key of this range and every range before it. */
+	private final long[] reachMiddle;
+	/** The lower 32 bits of the highest public key of this range and every range before it. */
+	private final int [] reachLow;
+	
+	/** Compile the given vanity prefixes, each of which must start with a '1' like every address, into a new multi-prefix matcher. */
+	public IttyBittyBitcoinMultiPrefixMatcher(IttyBittyBitcoin ibb, List<String> vanities) {
+		if (vanities.isEmpty()) {
+			throw new RuntimeException("Unable to search for vanity addresses: No vanity text given!");
+		}
+		this.vanities = vanities.toArray(new String[vanities.size()]);
+		
+		// Compile every prefix on its own, which also checks to see if each could actually be found at all
+		IttyBittyBitcoinPrefixMatcher[] matchers = new IttyBittyBitcoinPrefixMatcher[this.vanities.length];
+		int rangeCount = 0;
+		for (int i = 0; i<matchers.length; i++) {
+			matchers[i] = new IttyBittyBitcoinPrefixMatcher(ibb, this.vanities[i]);
+			rangeCount += matchers[i].rangeLowHigh.length;
+		}
+		
+		// Gather the ranges of every prefix, then sort them by their lowest public key
+		rangePrefix     = new int [rangeCount];
+		rangeLowHigh    = new long[rangeCount];
+		rangeLowMiddle  = new long[rangeCount];
+		rangeLowLow     = new int [rangeCount];
+		rangeHighHigh   = new long[rangeCount];
+		rangeHighMiddle = new long[rangeCount];
+		rangeHighLow    = new int [rangeCount];
+		Integer[] order = new Integer[rangeCount];
+		int[] orderPrefix = new int[rangeCount];
+		int[] orderRange  = new int[rangeCount];
+		for (int i = 0, r = 0; i<matchers.length; i++) {
+			for (int j = 0; j<matchers[i].rangeLowHigh.length; j++, r++) {
+				order      [r] = r;
+				orderPrefix[r] = i;
+				orderRange [r] = j;
+			}
+		}
+		java.util.Arrays.sort(order, (a, b) -> {
+			IttyBittyBitcoinPrefixMatcher ma = matchers[orderPrefix[a]];
+			IttyBittyBitcoinPrefixMatcher mb = matchers[orderPrefix[b]];
+			int ra = orderRange[a];
+			int rb = orderRange[b];
+			return IttyBittyBitcoinPrefixMatcher.compare(ma.rangeLowHigh[ra], ma.rangeLowMiddle[ra], ma.rangeLowLow[ra], mb.rangeLowHigh[rb], mb.rangeLowMiddle[rb], mb.rangeLowLow[rb]);
+		});
+		for (int i = 0; i<rangeCount; i++) {
+			IttyBittyBitcoinPrefixMatcher m = matchers[orderPrefix[order[i]]];
+			int r = orderRange[order[i]];
+			rangePrefix    [i] = orderPrefix[order[i]];
+			rangeLowHigh   [i] = m.rangeLowHigh   [r];
+			rangeLowMiddle [i] = m.rangeLowMiddle [r];
+			rangeLowLow    [i] = m.rangeLowLow    [r];
+			rangeHighHigh  [i] = m.rangeHighHigh  [r];
+			rangeHighMiddle[i] = m.rangeHighMiddle[r];
+			rangeHighLow   [i] = m.rangeHighLow   [r];
+		}
+		
+		// Track the highest public key reached by each range or any range before it, so that a lookup knows when no earlier range can still overlap
+		reachHigh   = new long[rangeCount];
+		reachMiddle = new long[rangeCount];
+		reachLow    = new int [rangeCount];
+		for (int i = 0; i<rangeCount; i++) {
+			if (i == 0 || IttyBittyBitcoinPrefixMatcher.compare(rangeHighHigh[i], rangeHighMiddle[i], rangeHighLow[i], reachHigh[i - 1], reachMiddle[i - 1], reachLow[i - 1]) > 0) {
+				reachHigh  [i] = rangeHighHigh  [i];
+				reachMiddle[i] = rangeHighMiddle[i];
+				reachLow   [i] = rangeHighLow   [i];
+			} else {
+				reachHigh  [i] = reachHigh  [i - 1];
+				reachMiddle[i] = reachMiddle[i - 1];
+				reachLow   [i] = reachLow   [i - 1];
+			}
+		}
+		
+		// A public key can only fall into one range per prefix, since each prefix's ranges are disjoint
+		this.maxMatches = matchers.length;
+	}
+	
+	/** Returns the number of vanity prefixes that this matcher was compiled from. */
+	public int getVanityCount() {
+		return vanities.length;
+	}
+	
+	/** Returns the vanity prefix with the given index, in the order the prefixes were given. */
+	public String getVanity(int index) {
+		return vanities[index];
+	}
+	
+	/** Returns the largest number of prefix indices that matches(...) can write, which is the size that its 'prefixIndices' array must have. */
+	public int getMaxMatches() {
+		return maxMatches;
+	}
+	
+	/** Test the 20-byte public key at 'offset' in 'publicKey' against every prefix, writing the index of each prefix whose ranges it falls into to 'prefixIndices.' Returns the number of prefix indices written, which is 0 if the public key matches no prefix. */
+	public int matches(byte[] publicKey, int offset, int[] prefixIndices) {
+		long high   = IttyBittyBitcoinBytes.readLong(publicKey, offset     );
+		long middle = IttyBittyBitcoinBytes.readLong(publicKey, offset +  8);
+		int  low    = IttyBittyBitcoinBytes.readInt (publicKey, offset + 16);
+		
+		// Binary search for the last range starting at or below the public key
+		int first = 0;
+		int last  = rangeLowHigh.length - 1;
+		while (first <= last) {
+			int mid = (first + last) >>> 1;
+			if (IttyBittyBitcoinPrefixMatcher.compare(rangeLowHigh[mid], rangeLowMiddle[mid], rangeLowLow[mid], high, middle, low) <= 0) {
+				first = mid + 1;
+			} else {
+				last  = mid - 1;
+			}
+		}
+		
+		// Scan back through every range starting below the public key, until no earlier range reaches up to it
+		int found = 0;
+		for (int i = last; i>=0; i--) {
+			if (IttyBittyBitcoinPrefixMatcher.compare(reachHigh[i], reachMiddle[i], reachLow[i], high, middle, low) < 0) {
+				break;
+			}
+			if (IttyBittyBitcoinPrefixMatcher.compare(rangeHighHigh[i], rangeHighMiddle[i], rangeHighLow[i], high, middle, low) >= 0) {
+				prefixIndices[found++] = rangePrefix[i];
+			}
+		}
+		return found;
+	}
+	
+	/** Test whether the given base-58 address starts with the vanity prefix with the given index, which should be used to confirm any hit returned by matches(...). */
+	public boolean matchesAddress(int index, String addressBase58) {
+		return addressBase58.startsWith(vanities[index]);
+	}
+}
@@ -0,0 +1,310 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A running search for addresses starting with any of many vanity prefixes, spread across several worker threads. Unlike IttyBittyBitcoinVanitySearch, every candidate is tested against every prefix at once, and the search keeps going after a hit, streaming each result to a listener as it is found. */
+public class IttyBittyBitcoinMultiVanitySearch {
+	/** Interface used to receive every result found by a multi-pattern vanity search. */
+	public static interface ResultListener {
+		/** Called whenever a private key whose address starts with 'vanity' is found. Calls are made from the worker threads, but never more than one at a time. */
+		public void found(IttyBittyBitcoinMultiVanitySearch search, String vanity, byte[] privateKey, String address);
+	}
+	
+	/** Interface used to receive periodic progress reports from a running multi-pattern vanity search. */
+	public static interface ProgressListener {
+		/** Called periodically from the search's reporting thread while the search is running, and once more when it finishes. */
+		public void progress(IttyBittyBitcoinMultiVanitySearch search);
+	}
+	
+	/** Number of consecutive candidates a worker generates per batch. Workers publish their candidate count and check whether the search has finished once per batch. */
+	private static final int workerBatchSize = 256;
+	
+	/** The compiled form of every vanity String that addresses may start with. */
+	private final IttyBittyBitcoinMultiPrefixMatcher matcher;
+	/** Whether the compressed or the uncompressed form of each candidate's public point is searched. */
+	private final boolean                            compressed;
+	/** Whether each prefix is only reported the first time it is found, with the search finishing once every prefix has been found. */
+	private final boolean                            findEachOnce;
+	
+	/** The IttyBittyBitcoin instance shared by every worker, which keeps its hashing state per-thread. */
+	private final IttyBittyBitcoin   ibb;
+	/** The number of candidates that each worker has tested so far. */
+	private final AtomicLong[]       workerCandidates;
+	/** The worker threads performing the search, created when the search is started. */
+	private       Thread[]           workerThreads;
+	
+	/** The listener to report every result to. */
+	private final ResultListener   resultListener;
+	/** The listener to notify of progress, or null if progress is not reported. */
+	private final ProgressListener progressListener;
+	/** The number of milliseconds between successive progress reports. */
+	private final long             progressInterval;
+	
+	/** The watch list that every candidate is also checked against, or null if candidates are not checked against a watch list. */
+	private IttyBittyBitcoinWatchList               watchList;
+	/** The listener to report each candidate on the watch list to, or null if candidates are not checked against a watch list. */
+	private IttyBittyBitcoinWatchList.MatchListener watchListener;
+	
+	/** Whether each prefix has been found yet, guarded by this search's lock. */
+	private final boolean[]      vanityFound;
+	/** The number of distinct prefixes found so far, guarded by this search's lock. */
+	private       int            vanityFoundCount;
+	/** The total number of results reported so far, guarded by this search's lock. */
+	private       long           resultCount;
+	/** Latch released once the search has found every prefix, been cancelled, or failed. */
+	private final CountDownLatch finished = new CountDownLatch(1);
+	/** The exception or error that stopped a worker thread and so ended the search, or null if no worker has failed. */
+	private volatile Throwable   failure;
+	/** The value of System.nanoTime() when the search was started, or 0 if it has not been started. */
+	private volatile long        startTime;
+	/** The value of System.nanoTime() when the search finished, or 0 if it is still running. */
+	private volatile long        endTime;
+	
+	/** Create a new search for addresses starting with any of the Strings in 'vanities,' spread across 'threadCount' worker threads. Every result is reported to 'resultListener'. If 'findEachOnce' is true, each prefix is reported only once and the search finishes when all have been found, otherwise it runs until cancelled. Progress is reported to 'progressListener' every 'progressInterval' milliseconds, if the listener is not null. The search does not begin until start() is called. */
+	public IttyBittyBitcoinMultiVanitySearch(List<String> vanities, boolean compressed, int threadCount, boolean findEachOnce, ResultListener resultListener, ProgressListener progressListener, long progressInterval) {
+		if (threadCount < 1) {
+			throw new RuntimeException("Unable to search for vanity addresses: At least one worker thread is required!");
+		}
+		
+		this.ibb              = new IttyBittyBitcoin();
+		this.workerCandidates = new AtomicLong[threadCount];
+		for (int i = 0; i<threadCount; i++) {
+			workerCandidates[i] = new AtomicLong();
+		}
+		
+		// Compile every vanity string once, which also checks to see if each could actually be found at all
+		this.matcher          = new IttyBittyBitcoinMultiPrefixMatcher(ibb, vanities);
+		this.compressed       = compressed;
+		this.findEachOnce     = findEachOnce;
+		this.vanityFound      = new boolean[matcher.getVanityCount()];
+		this.resultListener   = resultListener;
+		this.progressListener = progressListener;
+		this.progressInterval = progressInterval;
+	}
+	
+	/** Also check every candidate tested by this search against 'watchList,' reporting each one on the list to 'watchListener' from the worker thread that found it. This must be called before start(), and returns this search. */
+	public synchronized IttyBittyBitcoinMultiVanitySearch watch(IttyBittyBitcoinWatchList watchList, IttyBittyBitcoinWatchList.MatchListener watchListener) {
+		if (workerThreads != null) {
+			throw new RuntimeException("Vanity search has already been started!");
+		}
+		this.watchList     = watchList;
+		this.watchListener = watchListener;
+		return this;
+	}
+	
+	/** Start the worker threads, and the progress reporting thread if a progress listener was given. Returns this search, so that it can be used as a handle to the running search. */
+	public synchronized IttyBittyBitcoinMultiVanitySearch start() {
+		if (workerThreads != null) {
+			throw new RuntimeException("Vanity search has already been started!");
+		}
+		startTime = System.nanoTime();
+		
+		// Start the worker threads, each of which has its own candidate counter
+		workerThreads = new Thread[workerCandidates.length];
+		for (int i = 0; i<workerThreads.length; i++) {
+			final int workerIndex = i;
+			workerThreads[i] = new Thread(() -> {
+				try {
+					runWorker(workerIndex);
+				} catch (Throwable t) {
+					fail(t);
+				}
+			}, "IttyBittyBitcoin multi-vanity worker " + i);
+			workerThreads[i].setDaemon(true);
+			workerThreads[i].start();
+		}
+		
+		// Start the progress reporting thread, which lives until the search is finished
+		if (progressListener != null) {
+			Thread reporter = new Thread(() -> {
+				try {
+					while (!finished.await(progressInterval, TimeUnit.MILLISECONDS)) {
+						progressListener.progress(this);
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+				progressListener.progress(this);
+			}, "IttyBittyBitcoin multi-vanity progress");
+			reporter.setDaemon(true);
+			reporter.start();
+		}
+		return this;
+	}
+	
+	/** Search loop run by each worker thread. Each worker walks consecutive private keys from its own random starting key until the search finishes, testing every candidate against every prefix at once. */
+	private void runWorker(int workerIndex) {
+		AtomicLong candidates = workerCandidates[workerIndex];
+		
+		// Each worker starts from an independent random key, so that workers do not search overlapping ranges
+		byte[] startKey = IttyBittyBitcoinKeyGenerator.nextPrivateKey();
+		IttyBittyBitcoinCandidateGenerator generator = new IttyBittyBitcoinCandidateGenerator(startKey, workerBatchSize);
+		int[] prefixIndices = new int[matcher.getMaxMatches()];
+		
+		long tested = 0;
+		while (!isDone()) {
+			generator.nextBatch();
+			for (int i = 0; i<workerBatchSize; i++) {
+				if (generator.getPoint(i).isInfinity()) {
+					continue;
+				}
+				
+				// Only compute the checksum and base-58 address for public keys that fall within some prefix's ranges
+				byte[] publicKey = ibb.publicPointToPublicKey(generator.getEncodedPoint(i, compressed));
+				if (watchList != null && watchList.contains(publicKey, 0)) {
+					watchListener.matched(generator.getPrivateKey(i), compressed);
+				}
+				int found = matcher.matches(publicKey, 0, prefixIndices);
+				if (found > 0) {
+					String address = ibb.encodeBase58(ibb.publicKeyToAddress(publicKey));
+					for (int j = 0; j<found; j++) {
+						if (matcher.matchesAddress(prefixIndices[j], address)) {
+							report(prefixIndices[j], generator.getPrivateKey(i), address);
+						}
+					}
+				}
+			}
+			tested += workerBatchSize;
+			candidates.lazySet(tested);
+		}
+	}
+	
+	/** Report the given result to the result listener, unless the search has finished or its prefix has already been found and each prefix is only to be found once. */
+	private synchronized void report(int vanityIndex, byte[] privateKey, String address) {
+		if (isDone() || (findEachOnce && vanityFound[vanityIndex])) {
+			return;
+		}
+		if (!vanityFound[vanityIndex]) {
+			vanityFound[vanityIndex] = true;
+			vanityFoundCount++;
+		}
+		resultCount++;
+		resultListener.found(this, matcher.getVanity(vanityIndex), privateKey, address);
+		
+		// Once every prefix has been found, there is nothing left to search for
+		if (findEachOnce && vanityFoundCount == vanityFound.length) {
+			endTime = System.nanoTime();
+			finished.countDown();
+		}
+	}
+	
+	/** Record the given exception or error, which stopped a worker thread or was thrown by the result listener, as the outcome of this search unless it has already finished. This also stops every other worker. */
+	private synchronized void fail(Throwable t) {
+		if (!isDone()) {
+			failure = t;
+			endTime = System.nanoTime();
+			finished.countDown();
+		}
+	}
+	
+	/** Returns the number of vanity Strings that this search is looking for. */
+	public int getVanityCount() {
+		return matcher.getVanityCount();
+	}
+	
+	/** Returns whether the compressed or the uncompressed form of each candidate's public point is searched. */
+	public boolean isCompressed() {
+		return compressed;
+	}
+	
+	/** Returns the number of worker threads used by this search. */
+	public int getThreadCount() {
+		return workerCandidates.length;
+	}
+	
+	/** Returns the number of distinct vanity Strings found so far. */
+	public synchronized int getVanityFoundCount() {
+		return vanityFoundCount;
+	}
+	
+	/** Returns the total number of results reported so far, counting every hit for prefixes that were found more than once. */
+	public synchronized long getResultCount() {
+		return resultCount;
+	}
+	
+	/** Returns the total number of candidate private keys tested so far, across all worker threads. */
+	public long getCandidatesTried() {
+		long total = 0;
+		for (int i = 0; i<workerCandidates.length; i++) {
+			total += workerCandidates[i].get();
+		}
+		return total;
+	}
+	
+	/** Returns the number of seconds that this search has been running for, or ran for if it is finished. */
+	public double getElapsedSeconds() {
+		long start = startTime;
+		if (start == 0) {
+			return 0.0;
+		}
+		long end = endTime;
+		return ((end == 0 ? System.nanoTime() : end) - start) / 1.0E9;
+	}
+	
+	/** Returns the average number of candidate private keys tested per second since the search was started. */
+	public double getKeysPerSecond() {
+		double elapsedSeconds = getElapsedSeconds();
+		return elapsedSeconds > 0.0 ? getCandidatesTried() / elapsedSeconds : 0.0;
+	}
+	
+	/** Stop the search. Worker threads exit at their next check, which is never more than one batch of candidates away. Returns false if the search had already finished. */
+	public synchronized boolean cancel() {
+		if (isDone()) {
+			return false;
+		}
+		endTime = System.nanoTime();
+		finished.countDown();
+		return true;
+	}
+	
+	/** Returns whether the search has found every prefix or been cancelled. */
+	public boolean isDone() {
+		return finished.getCount() == 0;
+	}
+	
+	/** Wait for the search to find every prefix or be cancelled. Throws an ExecutionException if a worker thread failed. */
+	public void await() throws InterruptedException, ExecutionException {
+		finished.await();
+		checkFailure();
+	}
+	
+	/** Wait at most the given time for the search to find every prefix or be cancelled. Returns whether the search finished in that time, and throws an ExecutionException if a worker thread failed. */
+	public boolean await(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException {
+		boolean done = finished.await(timeout, unit);
+		checkFailure();
+		return done;
+	}
+	
+	/** Throw an ExecutionException wrapping the failure that ended this search, if a worker thread failed. */
+	private void checkFailure() throws ExecutionException {
+		if (failure != null) {
+			throw new ExecutionException("Vanity search failed!", failure);
+		}
+	}
+}
@@ -0,0 +1,360 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/** Deterministic vanity search whose keyspace is split into disjoint partitions, with all of its state kept in a directory so that it can be resumed after a crash and shared between processes or machines. The search's random seed fixes a base private key, and partition p walks the consecutive private keys starting at base + p * 2^192, so partitions never overlap. Workers claim partitions by creating claim files holding their worker id, periodically checkpoint how far they have walked, and record any hits in per-partition hit files. A worker restarted with the same id resumes its own partitions exactly where their last checkpoints left them. Instances may be shared between the threads of one process, each running its own partition. */
+public class IttyBittyBitcoinPartitionedSearch {
+	/** Number of bits between the starting private keys of consecutive partitions, leaving each partition far more keys than could ever be searched. */
+	private static final int    partitionBits   = 192;
+	/** Number of consecutive candidates generated per batch. Checkpoints always fall on batch boundaries. */
+	private static final int    workerBatchSize = 256;
+	/** Name of the file in the search directory that holds the search's vanity String, point compression, and seed. */
+	private static final String searchFileName  = "search.properties";
+	
+	/** The directory holding this search's state. */
+	private final Path                          directory;
+	/** The compiled form of the vanity pattern that addresses must match. */
+	private final IttyBittyBitcoinVanityMatcher matcher;
+	/** Whether the compressed or the uncompressed form of each candidate's public point is searched. */
+	private final boolean                       compressed;
+	/** The private key that partition 0 starts from, derived from the search's seed. */
+	private final BigInteger                    baseKey;
+	/** The IttyBittyBitcoin instance shared by every partition, which keeps its hashing state per-thread. */
+	private final IttyBittyBitcoin              ibb;
+	
+	/** The partitions being run by this process, so that one process never runs a partition twice. */
+	private final Set<Integer> runningPartitions = new HashSet<Integer>();
+	/** Whether every partition run by this process should stop at its next batch. */
+	private volatile boolean   stopped;
+	
+	/** Create a search object for the given directory and parameters. */
+	private IttyBittyBitcoinPartitionedSearch(IttyBittyBitcoin ibb, Path directory, String vanity, boolean compressed, byte[] seed) {
+		this.ibb        = ibb;
+		this.directory  = directory;
+		this.matcher    = IttyBittyBitcoinVanityMatcher.compile(ibb, vanity);
+		this.compressed = compressed;
+		this.baseKey    = new BigInteger(1, ibb.hashSHA256(seed)).mod(IttyBittyBitcoin.getSharedDomain().getN());
+	}
+	
+	/** Create a new search for addresses matching the vanity pattern 'vanity' in the given directory, with a fresh random seed. The directory is created if needed, and must not already hold a search. */
+	public static IttyBittyBitcoinPartitionedSearch create(IttyBittyBitcoin ibb, Path directory, String vanity, boolean compressed) throws IOException {
+		byte[] seed = new byte[32];
+		new SecureRandom().nextBytes(seed);
+		IttyBittyBitcoinPartitionedSearch search = new IttyBittyBitcoinPartitionedSearch(ibb, directory, vanity, compressed, seed);
+		
+		// Write the search file only once the vanity String has been checked, and never over an existing search
+		Properties properties = new Properties();
+		properties.setProperty("vanity"    , vanity);
+		properties.setProperty("compressed", Boolean.toString(compressed));
+		properties.setProperty("seed"      , ibb.encodeHex(seed));
+		Files.createDirectories(directory);
+		try (OutputStream out = Files.newOutputStream(directory.resolve(searchFileName), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			properties.store(out, "IttyBittyBitcoin partitioned vanity search");
+		} catch (FileAlreadyExistsException e) {
+			throw new RuntimeException("Unable to create partitioned search: Directory already holds a search!", e);
+		}
+		return search;
+	}
+	
+	/** Returns whether the given directory holds a search. */
+	public static boolean exists(Path directory) {
+		return Files.exists(directory.resolve(searchFileName));
+	}
+	
+	/** Open the existing search in the given directory. */
+	public static IttyBittyBitcoinPartitionedSearch open(IttyBittyBitcoin ibb, Path directory) throws IOException {
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(directory.resolve(searchFileName))) {
+			properties.load(in);
+		}
+		String vanity     = properties.getProperty("vanity");
+		String compressed = properties.getProperty("compressed");
+		String seed       = properties.getProperty("seed");
+		if (vanity == null || compressed == null || seed == null) {
+			throw new RuntimeException("Partitioned search file is corrupt: " + directory.resolve(searchFileName));
+		}
+		return new IttyBittyBitcoinPartitionedSearch(ibb, directory, vanity, Boolean.parseBoolean(compressed), ibb.decodeHex(seed));
+	}
+	
+	/** Returns the vanity pattern that this search is looking for. */
+	public String getVanity() {
+		return matcher.getVanity();
+	}
+	
+	/** Returns whether the compressed or the uncompressed form of each candidate's public point is searched. */
+	public boolean isCompressed() {
+		return compressed;
+	}
+	
+	/** Returns the directory holding this search's state. */
+	public Path getDirectory() {
+		return directory;
+	}
+	
+	/** Returns the private key that the given partition starts from. */
+	public byte[] getPartitionStart(int partition) {
+		return IttyBittyBitcoinCandidateGenerator.toPrivateKeyBytes(partitionKey(partition, 0));
+	}
+	
+	/** Returns the private key 'offset' keys into the given partition. */
+	private BigInteger partitionKey(int partition, long offset) {
+		return baseKey.add(BigInteger.valueOf(partition).shiftLeft(partitionBits)).add(BigInteger.valueOf(offset)).mod(IttyBittyBitcoin.getSharedDomain().getN());
+	}
+	
+	/** Claim a partition for the given worker id. A partition previously claimed by the same id and not yet running in this process is returned first, so that restarted workers resume their own partitions; otherwise the lowest unclaimed partition is claimed. */
+	public synchronized int claimPartition(String workerId) throws IOException {
+		// Resume this worker's own partitions first
+		try (DirectoryStream<Path> claims = Files.newDirectoryStream(directory, "partition-*.claim")) {
+			for (Path claim : claims) {
+				int partition = parsePartition(claim);
+				if (partition >= 0 && !runningPartitions.contains(partition) && new String(Files.readAllBytes(claim), StandardCharsets.UTF_8).trim().equals(workerId)) {
+					runningPartitions.add(partition);
+					return partition;
+				}
+			}
+		}
+		
+		// Otherwise claim a new partition, relying on exclusive file creation to settle races with other workers
+		for (int partition = 0; ; partition++) {
+			try {
+				Files.write(partitionFile(partition, ".claim"), (workerId + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+				runningPartitions.add(partition);
+				return partition;
+			} catch (FileAlreadyExistsException e) {
+				// Claimed by another worker, so try the next partition
+			}
+		}
+	}
+	
+	/** Returns the number of keys of the given partition that have been searched, as of its last checkpoint. */
+	public long getCheckpoint(int partition) throws IOException {
+		try {
+			return Long.parseLong(new String(Files.readAllBytes(partitionFile(partition, ".checkpoint")), StandardCharsets.UTF_8).trim());
+		} catch (NoSuchFileException e) {
+			return 0;
+		} catch (NumberFormatException e) {
+			throw new RuntimeException("Partitioned search checkpoint is corrupt for partition " + partition + "!", e);
+		}
+	}
+	
+	/** Record that the first 'offset' keys of the given partition have been searched. The checkpoint is written to a temporary file and then moved into place, so that a crash never leaves a partial checkpoint behind. */
+	private void writeCheckpoint(int partition, long offset) throws IOException {
+		Path temporary = partitionFile(partition, ".checkpoint.tmp");
+		Files.write(temporary, (offset + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+		Files.move(temporary, partitionFile(partition, ".checkpoint"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/** Search the given partition from its last checkpoint, writing a new checkpoint every 'checkpointInterval' milliseconds. Returns the private key found, or null if the search stopped because a hit was recorded elsewhere or stop() was called. */
+	public byte[] runPartition(int partition, long checkpointInterval) throws IOException {
+		long offset = getCheckpoint(partition);
+		IttyBittyBitcoinCandidateGenerator generator = new IttyBittyBitcoinCandidateGenerator(IttyBittyBitcoinCandidateGenerator.toPrivateKeyBytes(partitionKey(partition, offset)), workerBatchSize);
+		long lastCheckpoint = System.nanoTime();
+		try {
+			while (!stopped) {
+				generator.nextBatch();
+				for (int i = 0; i<workerBatchSize; i++) {
+					if (generator.getPoint(i).isInfinity()) {
+						continue;
+					}
+					
+					// Record the hit before the checkpoint moves past it, so that a crash can never lose it
+					byte[] publicKey = ibb.publicPointToPublicKey(generator.getEncodedPoint(i, compressed));
+					if (matcher.matches(publicKey, 0)) {
+						String address = ibb.encodeBase58(ibb.publicKeyToAddress(publicKey));
+						if (matcher.matchesAddress(address)) {
+							byte[] privateKey = generator.getPrivateKey(i);
+							Files.write(partitionFile(partition, ".hits"), (ibb.encodeHex(privateKey) + " " + address + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+							writeCheckpoint(partition, offset + i + 1);
+							stopped = true;
+							return privateKey;
+						}
+					}
+				}
+				offset += workerBatchSize;
+				
+				// Checkpoint periodically, and stop once any other partition has found a hit
+				long now = System.nanoTime();
+				if (now - lastCheckpoint >= checkpointInterval * 1000000L) {
+					writeCheckpoint(partition, offset);
+					lastCheckpoint = now;
+					if (hasHits()) {
+						stopped = true;
+					}
+				}
+			}
+			writeCheckpoint(partition, offset);
+			return null;
+		} finally {
+			synchronized (this) {
+				runningPartitions.remove(partition);
+			}
+		}
+	}
+	
+	/** Run 'threadCount' partitions at once for the given worker id, each on its own thread, until any partition finds a hit or stop() is called. Returns the private key found by this worker, or null if the hit was found elsewhere. If any partition fails, every other partition is stopped and the first failure is rethrown once they have all written their final checkpoints. */
+	public byte[] runWorker(String workerId, int threadCount, long checkpointInterval) throws IOException {
+		if (threadCount < 1) {
+			throw new RuntimeException("Unable to run partitioned search: At least one worker thread is required!");
+		}
+		
+		// Claim every partition up front, so that a failure to claim is reported before any searching starts
+		int[] partitions = new int[threadCount];
+		for (int i = 0; i<threadCount; i++) {
+			partitions[i] = claimPartition(workerId);
+		}
+		byte[][]      results = new byte[threadCount][];
+		Throwable[]   errors  = new Throwable[threadCount];
+		Thread[]      threads = new Thread[threadCount];
+		for (int i = 0; i<threadCount; i++) {
+			final int index = i;
+			threads[i] = new Thread(() -> {
+				try {
+					results[index] = runPartition(partitions[index], checkpointInterval);
+				} catch (Throwable t) {
+					errors[index] = t;
+					stop();
+				}
+			}, "IttyBittyBitcoin partition " + partitions[i]);
+			threads[i].start();
+		}
+		
+		// Wait for every partition to write its final checkpoint
+		byte[]    found = null;
+		Throwable error = null;
+		for (int i = 0; i<threadCount; i++) {
+			try {
+				threads[i].join();
+			} catch (InterruptedException e) {
+				stop();
+				i--;
+				continue;
+			}
+			if (error == null) {
+				error = errors[i];
+			}
+			if (results[i] != null) {
+				found = results[i];
+			}
+		}
+		
+		// Never report a failed run as a hit found by another worker
+		if (error instanceof IOException) {
+			throw (IOException) error;
+		} else if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		} else if (error instanceof Error) {
+			throw (Error) error;
+		} else if (error != null) {
+			throw new RuntimeException("Unable to run partitioned search!", error);
+		}
+		return found;
+	}
+	
+	/** Start 'processCount' worker processes on this machine, with the ids 'local-0', 'local-1', and so on, each running 'threadsPerProcess' partitions. Each process runs this class's command line with the same Java installation and class path as this process, and logs to 'worker-<id>.log' in the search directory. */
+	public Process[] startLocalWorkers(int processCount, int threadsPerProcess) throws IOException {
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		Process[] processes = new Process[processCount];
+		for (int i = 0; i<processCount; i++) {
+			String workerId = "local-" + i;
+			processes[i] = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), IttyBittyBitcoinCommandLine.class.getName(), "partitionWorker", directory.toString(), workerId, Integer.toString(threadsPerProcess))
+					.redirectErrorStream(true)
+					.redirectOutput(ProcessBuilder.Redirect.appendTo(directory.resolve("worker-" + workerId + ".log").toFile()))
+					.start();
+		}
+		return processes;
+	}
+	
+	/** Stop every partition run by this process at its next batch, after which each writes a final checkpoint. */
+	public void stop() {
+		stopped = true;
+	}
+	
+	/** Returns whether any partition has recorded a hit. */
+	public boolean hasHits() throws IOException {
+		try (DirectoryStream<Path> hits = Files.newDirectoryStream(directory, "partition-*.hits")) {
+			return hits.iterator().hasNext();
+		}
+	}
+	
+	/** Returns every hit recorded by any partition, each as the line 'partition private-key address'. */
+	public List<String> getHits() throws IOException {
+		List<String> results = new ArrayList<String>();
+		try (DirectoryStream<Path> hits = Files.newDirectoryStream(directory, "partition-*.hits")) {
+			for (Path hit : hits) {
+				for (String line : Files.readAllLines(hit, StandardCharsets.UTF_8)) {
+					if (!line.trim().isEmpty()) {
+						results.add(parsePartition(hit) + " " + line.trim());
+					}
+				}
+			}
+		}
+		return results;
+	}
+	
+	/** Returns the total number of keys searched across every partition, as of their last checkpoints. */
+	public long getCandidatesTried() throws IOException {
+		long total = 0;
+		try (DirectoryStream<Path> checkpoints = Files.newDirectoryStream(directory, "partition-*.checkpoint")) {
+			for (Path checkpoint : checkpoints) {
+				total += getCheckpoint(parsePartition(checkpoint));
+			}
+		}
+		return total;
+	}
+	
+	/** Returns the path of the given partition's file with the given extension. */
+	private Path partitionFile(int partition, String extension) {
+		return directory.resolve("partition-" + partition + extension);
+	}
+	
+	/** Returns the partition number in the name of the given partition file, or -1 if the name is not of that form. */
+	private static int parsePartition(Path file) {
+		String name = file.getFileName().toString();
+		int end = name.indexOf('.');
+		try {
+			return Integer.parseInt(name.substring("partition-".length(), end));
+		} catch (NumberFormatException | IndexOutOfBoundsException e) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,163 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+/** Matches addresses against a wildcard pattern over the whole base-58 address, where '?' matches any one character and '*' matches any run of characters. Any literal characters before the first wildcard are compiled into an IttyBittyBitcoinPrefixMatcher, which rejects most public keys before their addresses are computed. Addresses that pass are encoded into a reusable per-thread character buffer and matched against the pattern there. Instances are immutable and may be shared between threads. */
+public class IttyBittyBitcoinPatternMatcher implements IttyBittyBitcoinVanityMatcher {
+	/** Length of almost every address, the rest being one character shorter, used to estimate how many places the parts of a pattern between '*' wildcards can fall. */
+	private static final int typicalAddressLength = 34;
+	
+	/** Reusable character buffer of each thread, large enough to hold any encoded address. */
+	private static final ThreadLocal<char[]> addressChars = new ThreadLocal<char[]>() {
+		@Override
+		protected char[] initialValue() {
+			return new char[IttyBittyBitcoinBase58.maxEncodedLength(25)];
+		}
+	};
+	
+	/** The vanity pattern that this matcher was compiled from. */
+	private final String                        vanity;
+	/** Whether the pattern ignores the case of letters. */
+	private final boolean                       caseInsensitive;
+	/** Bit masks of the base-58 digit values accepted by each character of the pattern, or 0 for each '*' wildcard. */
+	private final long[]                        masks;
+	/** The matcher for the literal characters before the first wildcard, or null if the pattern starts with a wildcard. */
+	private final IttyBittyBitcoinPrefixMatcher prefix;
+	/** The estimated probability that a random address matches this pattern. */
+	private final double                        probability;
+	
+	/** Compile the given wildcard pattern into a new pattern matcher. */
+	public IttyBittyBitcoinPatternMatcher(IttyBittyBitcoin ibb, String vanity, boolean caseInsensitive) {
+		this.vanity          = vanity;
+		this.caseInsensitive = caseInsensitive;
+		
+		// Compile every character of the pattern, and count the characters that are not '*' wildcards
+		masks = new long[vanity.length()];
+		int stars = 0;
+		int literalPrefixLength = -1;
+		for (int i = 0; i<masks.length; i++) {
+			char c = vanity.charAt(i);
+			if (c == '*' || c == '?') {
+				literalPrefixLength = literalPrefixLength < 0 ? i : literalPrefixLength;
+			}
+			if (c == '*') {
+				stars++;
+				continue;
+			}
+			masks[i] = IttyBittyBitcoinBase58.digitMask(c, caseInsensitive);
+			if (masks[i] == 0) {
+				throw new RuntimeException("Unable to search for vanity address: Given vanity text cannot be base-58 encoded!");
+			}
+		}
+		int fixed = masks.length - stars;
+		if (fixed > typicalAddressLength) {
+			throw new RuntimeException("Unable to search for vanity address: Given vanity text is too long to appear in any address!");
+		}
+		if (stars == 0 && fixed < typicalAddressLength - 1) {
+			throw new RuntimeException("Unable to search for vanity address: Given vanity pattern is shorter than any address, and should end with a '*'!");
+		}
+		
+		// The literal characters before the first wildcard can be matched as a prefix, before any address is computed
+		double probability = 1.0;
+		if (literalPrefixLength > 0) {
+			prefix = new IttyBittyBitcoinPrefixMatcher(ibb, vanity.substring(0, literalPrefixLength), caseInsensitive);
+			probability = prefix.getProbability();
+		} else {
+			prefix = null;
+			literalPrefixLength = 0;
+		}
+		
+		// Estimate the rest as independent uniform digits, each placement of the '*' wildcards being another chance to match
+		for (int i = literalPrefixLength; i<masks.length; i++) {
+			if (masks[i] != 0) {
+				probability *= Long.bitCount(masks[i]) / 58.0;
+			}
+		}
+		if (stars > 0) {
+			// The unfixed characters can be split between the wildcards in (slack + stars - 1) choose (stars - 1) ways
+			int slack = typicalAddressLength - fixed;
+			for (int i = 1; i<stars; i++) {
+				probability = probability * (slack + i) / i;
+			}
+		}
+		this.probability = Math.min(probability, 1.0);
+	}
+	
+	@Override
+	public String getVanity() {
+		return caseInsensitive ? vanity + IttyBittyBitcoinVanityMatcher.caseInsensitiveFlag : vanity;
+	}
+	
+	@Override
+	public String getMode() {
+		return caseInsensitive ? "case-insensitive pattern" : "pattern";
+	}
+	
+	@Override
+	public double getProbability() {
+		return probability;
+	}
+	
+	@Override
+	public boolean matches(byte[] publicKey, int offset) {
+		return prefix == null || prefix.matches(publicKey, offset);
+	}
+	
+	@Override
+	public boolean matchesAddress(byte[] address, int offset) {
+		char[] chars = addressChars.get();
+		int length = IttyBittyBitcoin.getThreadBase58().encode(address, offset, 25, chars, 0);
+		return matchesChars(chars, length);
+	}
+	
+	@Override
+	public boolean matchesAddress(String addressBase58) {
+		return matchesChars(addressBase58.toCharArray(), addressBase58.length());
+	}
+	
+	/** Test whether the first 'length' characters of 'chars' match the pattern. When a character does not match, the last '*' wildcard is made to swallow one more character and matching resumes from there, which is enough to decide any pattern without deeper backtracking. */
+	private boolean matchesChars(char[] chars, int length) {
+		int p = 0;
+		int c = 0;
+		int starP = -1;
+		int starC = 0;
+		while (c < length) {
+			if (p < masks.length && masks[p] != 0 && (masks[p] & IttyBittyBitcoinBase58.digitBit(chars[c])) != 0) {
+				p++;
+				c++;
+			} else if (p < masks.length && masks[p] == 0) {
+				starP = p++;
+				starC = c;
+			} else if (starP >= 0) {
+				p = starP + 1;
+				c = ++starC;
+			} else {
+				return false;
+			}
+		}
+		while (p < masks.length && masks[p] == 0) {
+			p++;
+		}
+		return p == masks.length;
+	}
+}
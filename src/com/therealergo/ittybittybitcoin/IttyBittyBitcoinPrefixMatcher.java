@@ -0,0 +1,249 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/** Matches public keys (RIPEMD-160 hashes) against a vanity prefix without computing their checksums or base-58 addresses. The prefix is compiled once into the set of 160-bit ranges of public keys whose addresses start with it. A case-insensitive prefix is compiled into the union of the ranges of every way of writing it, sorted and merged so that a public key is located with a binary search. Because the checksum is not known, a public key at the very edge of a range may not actually match, so hits should be confirmed against the full base-58 address. Instances are immutable and may be shared between threads. */
+public class IttyBittyBitcoinPrefixMatcher implements IttyBittyBitcoinVanityMatcher {
+	/** Largest number of ways of writing a case-insensitive prefix that will be compiled, which is reached by a prefix with 16 letters. */
+	private static final int maxCaseVariants = 1 << 16;
+	
+	/** The vanity prefix that this matcher was compiled from. */
+	private final String  vanity;
+	/** Whether the prefix ignores the case of letters. */
+	private final boolean caseInsensitive;
+	
+	/** The upper 64 bits of the lowest public key of each range. Ranges are sorted by their lowest public key, and never overlap. */
+	final long[] rangeLowHigh;
+	/** The middle 64 bits of the lowest public key of each range. */
+	final long[] rangeLowMiddle;
+	/** The lower 32 bits of the lowest public key of each range. */
+	final int [] rangeLowLow;
+	/** The upper 64 bits of the highest public key of each range. */
+	final long[] rangeHighHigh;
+	/** The middle 64 bits of the highest public key of each range. */
+	final long[] rangeHighMiddle;
+	/** The lower 32 bits of the highest public key of each range. */
+	final int [] rangeHighLow;
+	
+	/** The fraction of all 160-bit public keys that fall into any of this matcher's ranges. */
+	private final double probability;
+	
+	/** Compile the given vanity prefix, which must start with a '1' like every address, into a new prefix matcher. */
+	public IttyBittyBitcoinPrefixMatcher(IttyBittyBitcoin ibb, String vanity) {
+		this(ibb, vanity, false);
+	}
+	
+	/** Compile the given vanity prefix as above, ignoring the case of its letters if 'caseInsensitive' is true. */
+	public IttyBittyBitcoinPrefixMatcher(IttyBittyBitcoin ibb, String vanity, boolean caseInsensitive) {
+		if (!vanity.startsWith("1")) {
+			throw new RuntimeException("Unable to search for vanity address: Given vanity text does not start with a '1'!");
+		}
+		this.vanity          = vanity;
+		this.caseInsensitive = caseInsensitive;
+		
+		// Compute the inclusive ranges of public keys for every way of writing the prefix, and merge them into disjoint sorted ranges
+		ArrayList<BigInteger[]> ranges = new ArrayList<BigInteger[]>();
+		for (String variant : computeVariants(vanity, caseInsensitive)) {
+			ranges.addAll(computeRanges(ibb, variant));
+		}
+		ranges = mergeRanges(ranges);
+		
+		// Convert the ranges to the fixed-width form used for matching
+		if (ranges.isEmpty()) {
+			throw new RuntimeException("Unable to search for vanity address: Given vanity text is too long to appear in any address!");
+		}
+		rangeLowHigh    = new long[ranges.size()];
+		rangeLowMiddle  = new long[ranges.size()];
+		rangeLowLow     = new int [ranges.size()];
+		rangeHighHigh   = new long[ranges.size()];
+		rangeHighMiddle = new long[ranges.size()];
+		rangeHighLow    = new int [ranges.size()];
+		BigInteger covered = BigInteger.ZERO;
+		for (int i = 0; i<ranges.size(); i++) {
+			BigInteger low  = ranges.get(i)[0];
+			BigInteger high = ranges.get(i)[1];
+			rangeLowHigh   [i] = low .shiftRight(96).longValue();
+			rangeLowMiddle [i] = low .shiftRight(32).longValue();
+			rangeLowLow    [i] = low              .intValue ();
+			rangeHighHigh  [i] = high.shiftRight(96).longValue();
+			rangeHighMiddle[i] = high.shiftRight(32).longValue();
+			rangeHighLow   [i] = high             .intValue ();
+			covered = covered.add(high.subtract(low).add(BigInteger.ONE));
+		}
+		
+		// Keep 53 significant bits of the covered count, which is all that a double can hold anyway
+		int shift = Math.max(covered.bitLength() - 53, 0);
+		probability = Math.scalb(covered.shiftRight(shift).doubleValue(), shift - 160);
+	}
+	
+	/** Returns every way of writing the given vanity prefix: only the prefix itself if case matters, or otherwise every combination of the base-58 characters that each of its letters could be in either case. */
+	private static ArrayList<String> computeVariants(String vanity, boolean caseInsensitive) {
+		ArrayList<String> variants = new ArrayList<String>();
+		variants.add("");
+		for (int i = 0; i<vanity.length(); i++) {
+			long mask = IttyBittyBitcoinBase58.digitMask(vanity.charAt(i), caseInsensitive);
+			if (mask == 0 || vanity.charAt(i) == '?') {
+				throw new RuntimeException("Unable to search for vanity address: Given vanity text cannot be base-58 encoded!");
+			}
+			if (variants.size() * Long.bitCount(mask) > maxCaseVariants) {
+				throw new RuntimeException("Unable to search for vanity address: Given vanity text has too many letters to ignore their case!");
+			}
+			ArrayList<String> extended = new ArrayList<String>(variants.size() * Long.bitCount(mask));
+			for (String variant : variants) {
+				for (int digit = 0; digit<58; digit++) {
+					if (((mask >>> digit) & 1) != 0) {
+						extended.add(variant + IttyBittyBitcoinBase58.base58ToChar[digit]);
+					}
+				}
+			}
+			variants = extended;
+		}
+		return variants;
+	}
+	
+	/** Sort the given inclusive ranges by their lowest public key, and merge any that overlap or touch, so that no public key falls into more than one range. */
+	private static ArrayList<BigInteger[]> mergeRanges(ArrayList<BigInteger[]> ranges) {
+		Collections.sort(ranges, (a, b) -> a[0].compareTo(b[0]));
+		ArrayList<BigInteger[]> merged = new ArrayList<BigInteger[]>();
+		for (BigInteger[] range : ranges) {
+			BigInteger[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+			if (last != null && range[0].compareTo(last[1].add(BigInteger.ONE)) <= 0) {
+				last[1] = last[1].max(range[1]);
+			} else {
+				merged.add(new BigInteger[]{range[0], range[1]});
+			}
+		}
+		return merged;
+	}
+	
+	/** Compute the inclusive ranges of public keys whose addresses would start with the given vanity prefix, as pairs of 160-bit numbers. */
+	private static ArrayList<BigInteger[]> computeRanges(IttyBittyBitcoin ibb, String vanity) {
+		ArrayList<BigInteger[]> ranges = new ArrayList<BigInteger[]>();
+		
+		// Every leading '1' in an address represents one leading 0x00 byte, the first of which is the version byte
+		int leadingOnes = 0;
+		while (leadingOnes<vanity.length() && vanity.charAt(leadingOnes)=='1') {
+			leadingOnes++;
+		}
+		if (leadingOnes > 21) {
+			throw new RuntimeException("Unable to search for vanity address: Given vanity text has too many leading '1's!");
+		}
+		String rest = vanity.substring(leadingOnes);
+		
+		// With no characters after the leading 1's, the public key only needs to start with enough 0x00 bytes
+		if (rest.isEmpty()) {
+			ranges.add(new BigInteger[]{BigInteger.ZERO, BigInteger.ONE.shiftLeft(8 * (21 - leadingOnes)).subtract(BigInteger.ONE)});
+			return ranges;
+		}
+		
+		// Otherwise the 25-byte address value must have exactly that many leading 0x00 bytes, which places it in [lowest, highest)
+		BigInteger lowest  = BigInteger.ONE.shiftLeft(8 * (24 - leadingOnes));
+		BigInteger highest = BigInteger.ONE.shiftLeft(8 * (25 - leadingOnes));
+		
+		// For every possible number of remaining base-58 digits, the prefix covers one contiguous range of address values
+		BigInteger base58 = BigInteger.valueOf(58);
+		BigInteger prefixValue = new BigInteger(1, ibb.decodeBase58(rest));
+		for (BigInteger scale = BigInteger.ONE; prefixValue.multiply(scale).compareTo(highest) < 0; scale = scale.multiply(base58)) {
+			BigInteger low  = prefixValue                .multiply(scale).max(lowest );
+			BigInteger high = prefixValue.add(BigInteger.ONE).multiply(scale).min(highest);
+			if (low.compareTo(high) < 0) {
+				// Drop the 4 checksum bytes, keeping every public key that could produce an address value in range
+				ranges.add(new BigInteger[]{low.shiftRight(32), high.subtract(BigInteger.ONE).shiftRight(32)});
+			}
+		}
+		return ranges;
+	}
+	
+	/** Returns the vanity prefix that this matcher was compiled from, followed by '/i' if it ignores case. */
+	@Override
+	public String getVanity() {
+		return caseInsensitive ? vanity + IttyBittyBitcoinVanityMatcher.caseInsensitiveFlag : vanity;
+	}
+	
+	@Override
+	public String getMode() {
+		return caseInsensitive ? "case-insensitive prefix" : "prefix";
+	}
+	
+	/** Returns the probability that a single random public key matches this prefix, which is the fraction of the 2^160 public keys covered by its ranges. */
+	@Override
+	public double getProbability() {
+		return probability;
+	}
+	
+	/** Returns the expected number of random public keys that must be tested to find one that matches this prefix. */
+	@Override
+	public double getDifficulty() {
+		return 1.0 / probability;
+	}
+	
+	/** Test whether the 20-byte public key at 'offset' in 'publicKey' falls into any of this matcher's ranges, meaning that its address almost certainly starts with the vanity prefix. */
+	@Override
+	public boolean matches(byte[] publicKey, int offset) {
+		long high   = IttyBittyBitcoinBytes.readLong(publicKey, offset     );
+		long middle = IttyBittyBitcoinBytes.readLong(publicKey, offset +  8);
+		int  low    = IttyBittyBitcoinBytes.readInt (publicKey, offset + 16);
+		
+		// Find the last range starting at or below the public key, which is the only range that could hold it
+		int first = 0;
+		int last  = rangeLowHigh.length - 1;
+		while (first <= last) {
+			int mid = (first + last) >>> 1;
+			if (compare(rangeLowHigh[mid], rangeLowMiddle[mid], rangeLowLow[mid], high, middle, low) <= 0) {
+				first = mid + 1;
+			} else {
+				last  = mid - 1;
+			}
+		}
+		return last >= 0 && compare(high, middle, low, rangeHighHigh[last], rangeHighMiddle[last], rangeHighLow[last]) <= 0;
+	}
+	
+	/** Test whether the 25-byte address at 'offset' in 'address' starts with the vanity prefix, which should be used to confirm any hit returned by matches(...). */
+	@Override
+	public boolean matchesAddress(byte[] address, int offset) {
+		char[] chars = new char[IttyBittyBitcoinBase58.maxEncodedLength(25)];
+		int length = IttyBittyBitcoin.getThreadBase58().encode(address, offset, 25, chars, 0);
+		return matchesAddress(new String(chars, 0, length));
+	}
+	
+	/** Test whether the given base-58 address starts with the vanity prefix, which should be used to confirm any hit returned by matches(...). */
+	@Override
+	public boolean matchesAddress(String addressBase58) {
+		return addressBase58.regionMatches(caseInsensitive, 0, vanity, 0, vanity.length());
+	}
+	
+	/** Compare two unsigned 160-bit numbers, each split into upper 64, middle 64, and lower 32 bits. */
+	static int compare(long aHigh, long aMiddle, int aLow, long bHigh, long bMiddle, int bLow) {
+		if (aHigh != bHigh) {
+			return Long.compareUnsigned(aHigh, bHigh);
+		}
+		if (aMiddle != bMiddle) {
+			return Long.compareUnsigned(aMiddle, bMiddle);
+		}
+		return Integer.compareUnsigned(aLow, bLow);
+	}
+}
@@ -0,0 +1,145 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+/** Matches addresses against a vanity suffix, such as '*xyz,' without encoding them in base-58. The last k base-58 digits of an address are the 25-byte address value modulo 58^k, so the value is only divided by 58^5 once per 5 digits of the suffix, and almost every address is rejected after the first remainder. The suffix depends on the checksum, so no public key can be rejected before its address is computed. Each digit of the suffix may be a '?' to accept any digit. Instances are immutable and may be shared between threads. */
+public class IttyBittyBitcoinSuffixMatcher implements IttyBittyBitcoinVanityMatcher {
+	/** Longest suffix that can be matched. Only addresses whose values have 12 or more leading 0x00 bytes are shorter than this, which no random public key will ever produce. */
+	public static final int maxSuffixLength = 24;
+	
+	/** Number of base-58 digits in each remainder taken from the address value. */
+	private static final int  digitsPerLimb = 5;
+	/** Value that the address value is divided by for each remainder, 58^5, which is small enough that remainder * 2^32 still fits in a long. */
+	private static final long limbBase      = 58L * 58L * 58L * 58L * 58L;
+	
+	/** The vanity pattern that this matcher was compiled from. */
+	private final String  vanity;
+	/** Whether the suffix ignores the case of letters. */
+	private final boolean caseInsensitive;
+	/** Bit masks of the base-58 digit values accepted by each digit of the suffix, starting from the last digit. */
+	private final long[]  masks;
+	/** The probability that a random address ends with this suffix. */
+	private final double  probability;
+	
+	/** Compile the given vanity suffix, which must start with a '*' followed by base-58 characters and '?' wildcards, into a new suffix matcher. */
+	public IttyBittyBitcoinSuffixMatcher(String vanity, boolean caseInsensitive) {
+		if (!vanity.startsWith("*")) {
+			throw new RuntimeException("Unable to search for vanity address: Given vanity suffix does not start with a '*'!");
+		}
+		String suffix = vanity.substring(1);
+		if (suffix.isEmpty() || suffix.length() > maxSuffixLength) {
+			throw new RuntimeException("Unable to search for vanity address: Given vanity suffix must be between 1 and " + maxSuffixLength + " characters long!");
+		}
+		this.vanity          = vanity;
+		this.caseInsensitive = caseInsensitive;
+		
+		// Every digit is independent and uniformly distributed, so the probability is the product of each digit's chance
+		masks = new long[suffix.length()];
+		double probability = 1.0;
+		for (int i = 0; i<masks.length; i++) {
+			masks[i] = IttyBittyBitcoinBase58.digitMask(suffix.charAt(suffix.length() - 1 - i), caseInsensitive);
+			if (masks[i] == 0) {
+				throw new RuntimeException("Unable to search for vanity address: Given vanity text cannot be base-58 encoded!");
+			}
+			probability *= Long.bitCount(masks[i]) / 58.0;
+		}
+		this.probability = probability;
+	}
+	
+	@Override
+	public String getVanity() {
+		return caseInsensitive ? vanity + IttyBittyBitcoinVanityMatcher.caseInsensitiveFlag : vanity;
+	}
+	
+	@Override
+	public String getMode() {
+		return caseInsensitive ? "case-insensitive suffix" : "suffix";
+	}
+	
+	@Override
+	public double getProbability() {
+		return probability;
+	}
+	
+	/** Always returns true, since the suffix of an address depends on its checksum. */
+	@Override
+	public boolean matches(byte[] publicKey, int offset) {
+		return true;
+	}
+	
+	@Override
+	public boolean matchesAddress(byte[] address, int offset) {
+		// The lowest 5 digits are just the remainder, which rejects almost every address without computing a quotient
+		long remainder = address[offset] & 0xFF;
+		for (int i = 1; i<25; i += 4) {
+			remainder = ((remainder << 32) | (IttyBittyBitcoinBytes.readInt(address, offset + i) & 0xFFFFFFFFL)) % limbBase;
+		}
+		if (!matchesDigits(remainder, 0)) {
+			return false;
+		}
+		
+		// Longer suffixes divide the value, held as 32-bit words, by 58^5 once for every further 5 digits
+		int[] words = new int[7];
+		words[0] = address[offset] & 0xFF;
+		for (int i = 1; i<7; i++) {
+			words[i] = IttyBittyBitcoinBytes.readInt(address, offset + 4 * i - 3);
+		}
+		for (int position = 0; position<masks.length; position += digitsPerLimb) {
+			remainder = 0;
+			for (int i = 0; i<words.length; i++) {
+				long t = (remainder << 32) | (words[i] & 0xFFFFFFFFL);
+				words[i]  = (int)(t / limbBase);
+				remainder =       t % limbBase;
+			}
+			if (position > 0 && !matchesDigits(remainder, position)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/** Test whether the up to 5 base-58 digits held in 'remainder,' least-significant first, are accepted by the suffix digits starting at 'position' from the end. */
+	private boolean matchesDigits(long remainder, int position) {
+		int end = Math.min(position + digitsPerLimb, masks.length);
+		for (int i = position; i<end; i++) {
+			if (((masks[i] >>> (remainder % 58)) & 1) == 0) {
+				return false;
+			}
+			remainder /= 58;
+		}
+		return true;
+	}
+	
+	@Override
+	public boolean matchesAddress(String addressBase58) {
+		if (addressBase58.length() < masks.length) {
+			return false;
+		}
+		for (int i = 0; i<masks.length; i++) {
+			if ((masks[i] & IttyBittyBitcoinBase58.digitBit(addressBase58.charAt(addressBase58.length() - 1 - i))) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,65 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+/** Compiled form of a vanity pattern, which vanity searches use to test candidates. Each candidate is first tested by matches(...) on its public key, which may accept candidates that do not actually match but never rejects one that does, and only candidates that pass are given a checksum and tested by matchesAddress(...). Use compile(...) to get the cheapest matcher for a pattern. Implementations may be shared between threads. */
+public interface IttyBittyBitcoinVanityMatcher {
+	/** Suffix of a pattern that makes it case-insensitive. */
+	public static final String caseInsensitiveFlag = "/i";
+	
+	/** Compile the given vanity pattern into the cheapest matcher that can test it. A pattern ending in '/i' ignores case. A pattern with no wildcards is a prefix, which must start with a '1' like every address, and is matched as ranges of public keys. A pattern starting with a '*' and containing no other '*' is a suffix, which may contain '?' wildcards, and is matched using the remainder of the address value. Anything else is a wildcard pattern against the whole address, where '?' matches any one character and '*' matches any run of characters, so a pattern meant to match only the start of an address should end with a '*'. */
+	public static IttyBittyBitcoinVanityMatcher compile(IttyBittyBitcoin ibb, String pattern) {
+		boolean caseInsensitive = pattern.endsWith(caseInsensitiveFlag);
+		String vanity = caseInsensitive ? pattern.substring(0, pattern.length() - caseInsensitiveFlag.length()) : pattern;
+		if (vanity.indexOf('*') < 0 && vanity.indexOf('?') < 0) {
+			return new IttyBittyBitcoinPrefixMatcher(ibb, vanity, caseInsensitive);
+		}
+		if (vanity.startsWith("*") && vanity.indexOf('*', 1) < 0) {
+			return new IttyBittyBitcoinSuffixMatcher(vanity, caseInsensitive);
+		}
+		return new IttyBittyBitcoinPatternMatcher(ibb, vanity, caseInsensitive);
+	}
+	
+	/** Returns the vanity pattern that this matcher was compiled from, which compiles back into an equivalent matcher. */
+	public String getVanity();
+	
+	/** Returns a short human readable name for the kind of matching this matcher does, such as 'prefix' or 'suffix.' */
+	public String getMode();
+	
+	/** Returns the probability that a single random candidate matches this pattern. This is exact for prefixes and suffixes, and an estimate for wildcard patterns. */
+	public double getProbability();
+	
+	/** Returns the expected number of random candidates that must be tested to find one that matches this pattern. */
+	public default double getDifficulty() {
+		return 1.0 / getProbability();
+	}
+	
+	/** Test whether the 20-byte public key at 'offset' in 'publicKey' could possibly produce a matching address. This never rejects a public key whose address matches. */
+	public boolean matches(byte[] publicKey, int offset);
+	
+	/** Test whether the 25-byte address at 'offset' in 'address,' which includes its checksum, matches this pattern. */
+	public boolean matchesAddress(byte[] address, int offset);
+	
+	/** Test whether the given base-58 address matches this pattern. */
+	public boolean matchesAddress(String addressBase58);
+}
@@ -0,0 +1,406 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IttyBittyBitcoinVanitySearch implements Future<byte[]> {
+	/** Interface used to receive periodic progress reports from a running vanity search. */
+	public static interface ProgressListener {
+		/** Called periodically from the search's reporting thread while the search is running, and once more when it finishes. */
+		public void progress(IttyBittyBitcoinVanitySearch search);
+	}
+	
+	/** Number of consecutive candidates a worker generates per batch. Workers publish their candidate count and check whether the search has finished once per batch. */
+	private static final int workerBatchSize = 256;
+	/** Mask applied to each worker's batch number to decide whether that batch's stages are timed. Only one batch in 16 is timed, which keeps the cost of timing negligible. */
+	private static final int statsSampleMask = 15;
+	
+	/** The compiled form of the vanity pattern that addresses must match. */
+	private final IttyBittyBitcoinVanityMatcher matcher;
+	/** Whether the compressed or the uncompressed form of each candidate's public point is searched, when not searching all variants. */
+	private final boolean                       compressed;
+	/** Whether every variant of each candidate is searched in both forms, as described by IttyBittyBitcoinCandidateGenerator.getEncodedVariants(...). */
+	private final boolean                       allVariants;
+	/** The number of encoded public points hashed and matched for each computed point: 1, or twice the variant count when searching all variants. */
+	private final int                           candidatesPerPoint;
+	
+	/** The IttyBittyBitcoin instance shared by every worker, which keeps its hashing state per-thread. */
+	private final IttyBittyBitcoin   ibb;
+	/** The number of candidates that each worker has tested so far. */
+	private final AtomicLong[]       workerCandidates;
+	/** The worker threads performing the search, created when the search is started. */
+	private       Thread[]           workerThreads;
+	
+	/** The instrumentation of this search, holding its difficulty and sampled stage timings. */
+	private final IttyBittyBitcoinVanityStats stats;
+	
+	/** The listener to notify of progress, or null if progress is not reported. */
+	private final ProgressListener progressListener;
+	/** The number of milliseconds between successive progress reports. */
+	private final long             progressInterval;
+	
+	/** The watch list that every candidate is also checked against, or null if candidates are not checked against a watch list. */
+	private IttyBittyBitcoinWatchList               watchList;
+	/** The listener to report each candidate on the watch list to, or null if candidates are not checked against a watch list. */
+	private IttyBittyBitcoinWatchList.MatchListener watchListener;
+	
+	/** Latch released once the search has either found a private key or been cancelled. */
+	private final CountDownLatch finished = new CountDownLatch(1);
+	/** The private key that was found, or null if no private key has been found yet. */
+	private volatile byte[]  result;
+	/** Whether the private key that was found has a vanity address in compressed form, rather than in uncompressed form. */
+	private volatile boolean resultCompressed;
+	/** Whether the search was cancelled before a private key was found. */
+	private volatile boolean cancelled;
+	/** The exception or error that stopped a worker thread and so ended the search, or null if no worker has failed. */
+	private volatile Throwable failure;
+	/** The value of System.nanoTime() when the search was started, or 0 if it has not been started. */
+	private volatile long    startTime;
+	/** The value of System.nanoTime() when the search finished, or 0 if it is still running. */
+	private volatile long    endTime;
+	
+	/** Create a new vanity search for addresses matching the pattern 'vanity,' which is compiled as IttyBittyBitcoinVanityMatcher.compile(...) describes, spread across 'threadCount' worker threads. Progress is reported to 'progressListener' every 'progressInterval' milliseconds, if the listener is not null. The search does not begin until start() is called. */
+	public IttyBittyBitcoinVanitySearch(String vanity, boolean compressed, int threadCount, ProgressListener progressListener, long progressInterval) {
+		this(vanity, compressed, false, threadCount, progressListener, progressInterval);
+	}
+	
+	/** Create a new vanity search as above, but if 'allVariants' is true then 'compressed' is ignored, and both forms of the point, its negation, and its endomorphism images are searched for every computed point. This tests 12 addresses per point addition instead of 1, and the form of the address that was found is given by isResultCompressed(). */
+	public IttyBittyBitcoinVanitySearch(String vanity, boolean compressed, boolean allVariants, int threadCount, ProgressListener progressListener, long progressInterval) {
+		if (threadCount < 1) {
+			throw new RuntimeException("Unable to search for vanity address: At least one worker thread is required!");
+		}
+		
+		this.ibb              = new IttyBittyBitcoin();
+		this.workerCandidates = new AtomicLong[threadCount];
+		for (int i = 0; i<threadCount; i++) {
+			workerCandidates[i] = new AtomicLong();
+		}
+		
+		// Compile the vanity pattern once, which also checks to see if it could actually be found at all
+		this.matcher            = IttyBittyBitcoinVanityMatcher.compile(ibb, vanity);
+		this.compressed         = compressed;
+		this.allVariants        = allVariants;
+		this.candidatesPerPoint = allVariants ? 2 * IttyBittyBitcoinCandidateGenerator.variantCount : 1;
+		this.progressListener   = progressListener;
+		this.progressInterval   = progressInterval;
+		this.stats              = new IttyBittyBitcoinVanityStats(this, matcher.getDifficulty());
+	}
+	
+	/** Also check every candidate tested by this search against 'watchList,' reporting each one on the list to 'watchListener' from the worker thread that found it. Lookups read the mapped watch list without allocating, so they add little to the cost of each candidate. This must be called before start(), and returns this search. */
+	public synchronized IttyBittyBitcoinVanitySearch watch(IttyBittyBitcoinWatchList watchList, IttyBittyBitcoinWatchList.MatchListener watchListener) {
+		if (workerThreads != null) {
+			throw new RuntimeException("Vanity search has already been started!");
+		}
+		this.watchList     = watchList;
+		this.watchListener = watchListener;
+		return this;
+	}
+	
+	/** Start the worker threads, and the progress reporting thread if a progress listener was given. Returns this search, so that it can be used as a handle to the running search. */
+	public synchronized IttyBittyBitcoinVanitySearch start() {
+		if (workerThreads != null) {
+			throw new RuntimeException("Vanity search has already been started!");
+		}
+		startTime = System.nanoTime();
+		
+		// Start the worker threads, each of which has its own candidate counter
+		workerThreads = new Thread[workerCandidates.length];
+		for (int i = 0; i<workerThreads.length; i++) {
+			final int workerIndex = i;
+			workerThreads[i] = new Thread(() -> {
+				try {
+					runWorker(workerIndex);
+				} catch (Throwable t) {
+					fail(t);
+				}
+			}, "IttyBittyBitcoin vanity worker " + i);
+			workerThreads[i].setDaemon(true);
+			workerThreads[i].start();
+		}
+		
+		// Start the progress reporting thread, which lives until the search is finished
+		if (progressListener != null) {
+			Thread reporter = new Thread(() -> {
+				try {
+					while (!finished.await(progressInterval, TimeUnit.MILLISECONDS)) {
+						progressListener.progress(this);
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+				progressListener.progress(this);
+			}, "IttyBittyBitcoin vanity progress");
+			reporter.setDaemon(true);
+			reporter.start();
+		}
+		return this;
+	}
+	
+	/** Search loop run by each worker thread. Each worker walks consecutive private keys from its own random starting key until any worker finds a match or the search is cancelled. Every batch passes through each stage of the search in turn, so that the time spent in each stage can be measured. */
+	private void runWorker(int workerIndex) {
+		AtomicLong candidates = workerCandidates[workerIndex];
+		
+		// Each worker starts from an independent random key, so that workers do not search overlapping ranges
+		byte[] startKey = IttyBittyBitcoinKeyGenerator.nextPrivateKey();
+		IttyBittyBitcoinCandidateGenerator generator = new IttyBittyBitcoinCandidateGenerator(startKey, workerBatchSize);
+		IttyBittyBitcoinHash hash = new IttyBittyBitcoinHash();
+		
+		// Hashes are written into flat per-worker buffers, so that the hashing stages allocate nothing
+		int      batchCandidates = workerBatchSize * candidatesPerPoint;
+		byte[][] encodedPoints   = new byte[batchCandidates][];
+		byte[]   sha256Hashes    = new byte[batchCandidates * 32];
+		byte[]   publicKeys      = new byte[batchCandidates * 20];
+		byte[]   address         = new byte[25];
+		long[]   stageNanos      = new long[IttyBittyBitcoinVanityStats.stageCount];
+		
+		long tested = 0;
+		for (long batch = 0; !isDone(); batch++) {
+			boolean sampled = (batch & statsSampleMask) == 0;
+			long time = sampled ? System.nanoTime() : 0;
+			
+			// Generate and encode the batch's public points, or every variant of them, skipping the point at infinity
+			generator.nextBatch();
+			for (int i = 0; i<workerBatchSize; i++) {
+				if (generator.getPoint(i).isInfinity()) {
+					Arrays.fill(encodedPoints, i * candidatesPerPoint, (i + 1) * candidatesPerPoint, null);
+				} else if (allVariants) {
+					generator.getEncodedVariants(i, encodedPoints, i * candidatesPerPoint);
+				} else {
+					encodedPoints[i] = generator.getEncodedPoint(i, compressed);
+				}
+			}
+			time = recordStage(sampled, stageNanos, IttyBittyBitcoinVanityStats.stageEcMultiply, time);
+			
+			// Hash every public point into a public key
+			for (int i = 0; i<batchCandidates; i++) {
+				if (encodedPoints[i] != null) {
+					hash.sha256(encodedPoints[i], 0, encodedPoints[i].length, sha256Hashes, i * 32);
+				}
+			}
+			time = recordStage(sampled, stageNanos, IttyBittyBitcoinVanityStats.stageSha256, time);
+			for (int i = 0; i<batchCandidates; i++) {
+				if (encodedPoints[i] != null) {
+					hash.ripemd160Of32(sha256Hashes, i * 32, publicKeys, i * 20);
+				}
+			}
+			time = recordStage(sampled, stageNanos, IttyBittyBitcoinVanityStats.stageRipemd160, time);
+			
+			// Only compute the checksum for public keys that could match, which for a prefix are those within its ranges
+			for (int i = 0; i<batchCandidates; i++) {
+				if (encodedPoints[i] == null) {
+					continue;
+				}
+				if (watchList != null && watchList.contains(publicKeys, i * 20)) {
+					watchListener.matched(getCandidatePrivateKey(generator, i), isCandidateCompressed(i));
+				}
+				if (!matcher.matches(publicKeys, i * 20)) {
+					continue;
+				}
+				hash.address(publicKeys, i * 20, address, 0);
+				if (matcher.matchesAddress(address, 0)) {
+					candidates.lazySet(tested + i + 1);
+					finish(getCandidatePrivateKey(generator, i), isCandidateCompressed(i));
+					return;
+				}
+			}
+			recordStage(sampled, stageNanos, IttyBittyBitcoinVanityStats.stageMatch, time);
+			if (sampled) {
+				stats.recordSample(batchCandidates, stageNanos);
+			}
+			
+			tested += batchCandidates;
+			candidates.lazySet(tested);
+		}
+	}
+	
+	/** Returns the private key of candidate 'i' of the generator's current batch. */
+	private byte[] getCandidatePrivateKey(IttyBittyBitcoinCandidateGenerator generator, int i) {
+		if (allVariants) {
+			// Each pair of candidates is one variant
+			return generator.getVariantPrivateKey(i / candidatesPerPoint, (i % candidatesPerPoint) >>> 1);
+		}
+		return generator.getPrivateKey(i);
+	}
+	
+	/** Returns whether candidate 'i' of a batch is the compressed form of its public point. When searching all variants, even candidates are compressed. */
+	private boolean isCandidateCompressed(int i) {
+		return allVariants ? (i & 1) == 0 : compressed;
+	}
+	
+	/** If this batch is sampled, record the time since 'time' as the time spent in the given stage. Returns the current time if sampled, or 0 otherwise. */
+	private static long recordStage(boolean sampled, long[] stageNanos, int stage, long time) {
+		if (!sampled) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		stageNanos[stage] = now - time;
+		return now;
+	}
+	
+	/** Record the given private key, whose vanity address is in compressed form if 'compressed' is true, as this search's result, unless the search has already finished. */
+	private synchronized void finish(byte[] privateKey, boolean compressed) {
+		if (!isDone()) {
+			result           = privateKey;
+			resultCompressed = compressed;
+			endTime          = System.nanoTime();
+			finished.countDown();
+			stats.unregisterMBean();
+		}
+	}
+	
+	/** Record the given exception or error, which stopped a worker thread, as the outcome of this search unless it has already finished. This also stops every other worker, since the search can no longer be trusted to finish. */
+	private synchronized void fail(Throwable t) {
+		if (!isDone()) {
+			failure = t;
+			endTime = System.nanoTime();
+			finished.countDown();
+			stats.unregisterMBean();
+		}
+	}
+	
+	/** Returns the vanity pattern that this search is looking for. */
+	public String getVanity() {
+		return matcher.getVanity();
+	}
+	
+	/** Returns how this search's vanity pattern is matched, such as 'prefix' or 'case-insensitive suffix.' */
+	public String getMode() {
+		return matcher.getMode();
+	}
+	
+	/** Returns the instrumentation of this search: its difficulty, probability of having found a match, estimated time remaining, and sampled stage timings. */
+	public IttyBittyBitcoinVanityStats getStats() {
+		return stats;
+	}
+	
+	/** Register this search's instrumentation with the platform MBean server, so that it can be watched from JMX tools such as JConsole. It is unregistered automatically once the search finishes. Returns this search. */
+	public synchronized IttyBittyBitcoinVanitySearch registerMBean() {
+		if (!isDone()) {
+			stats.registerMBean();
+		}
+		return this;
+	}
+	
+	/** Returns whether the compressed or the uncompressed form of each candidate's public point is searched, when not searching all variants. */
+	public boolean isCompressed() {
+		return compressed;
+	}
+	
+	/** Returns whether every variant of each candidate is searched in both forms. */
+	public boolean isAllVariants() {
+		return allVariants;
+	}
+	
+	/** Returns whether the private key found by this finished search has its vanity address in compressed form. This is always isCompressed() unless all variants are searched. */
+	public boolean isResultCompressed() {
+		return resultCompressed;
+	}
+	
+	/** Returns the number of worker threads used by this search. */
+	public int getThreadCount() {
+		return workerCandidates.length;
+	}
+	
+	/** Returns the total number of candidate addresses tested so far, across all worker threads. When searching all variants, every computed point counts as 12 candidates. */
+	public long getCandidatesTried() {
+		long total = 0;
+		for (int i = 0; i<workerCandidates.length; i++) {
+			total += workerCandidates[i].get();
+		}
+		return total;
+	}
+	
+	/** Returns the number of seconds that this search has been running for, or ran for if it is finished. */
+	public double getElapsedSeconds() {
+		long start = startTime;
+		if (start == 0) {
+			return 0.0;
+		}
+		long end = endTime;
+		return ((end == 0 ? System.nanoTime() : end) - start) / 1.0E9;
+	}
+	
+	/** Returns the average number of candidate private keys tested per second since the search was started. */
+	public double getKeysPerSecond() {
+		double elapsedSeconds = getElapsedSeconds();
+		return elapsedSeconds > 0.0 ? getCandidatesTried() / elapsedSeconds : 0.0;
+	}
+	
+	/** Stop the search if it has not yet found a private key. Worker threads exit at their next check, which is never more than one batch of candidates away. */
+	@Override
+	public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+		if (isDone()) {
+			return false;
+		}
+		cancelled = true;
+		endTime   = System.nanoTime();
+		finished.countDown();
+		stats.unregisterMBean();
+		return true;
+	}
+	
+	@Override
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	@Override
+	public boolean isDone() {
+		return finished.getCount() == 0;
+	}
+	
+	/** Wait for the search to find a private key whose address starts with the vanity String, and return that private key. Throws an ExecutionException if a worker thread failed. */
+	@Override
+	public byte[] get() throws InterruptedException, ExecutionException {
+		finished.await();
+		return getResult();
+	}
+	
+	/** Wait at most the given time for the search to find a private key whose address starts with the vanity String, and return that private key. */
+	@Override
+	public byte[] get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (!finished.await(timeout, unit)) {
+			throw new TimeoutException("Vanity search did not finish in the given time.");
+		}
+		return getResult();
+	}
+	
+	/** Returns the private key found by this finished search, throwing an exception if the search was cancelled or a worker failed instead. */
+	private byte[] getResult() throws ExecutionException {
+		if (cancelled) {
+			throw new CancellationException("Vanity search was cancelled before an address was found.");
+		}
+		if (failure != null) {
+			throw new ExecutionException("Vanity search failed!", failure);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,198 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/** Instrumentation of a running vanity search: its expected difficulty, progress, estimated time remaining, and the time spent in each stage of the search loop. Stage times are sampled from a fraction of batches, so that timing does not slow the search down. Instances are thread-safe, and may be registered as JMX MBeans. */
+public class IttyBittyBitcoinVanityStats implements IttyBittyBitcoinVanityStatsMBean {
+	/** Stage index of public point generation and encoding. */
+	static final int stageEcMultiply = 0;
+	/** Stage index of SHA-256 hashing. */
+	static final int stageSha256     = 1;
+	/** Stage index of RIPEMD-160 hashing. */
+	static final int stageRipemd160  = 2;
+	/** Stage index of matching against the vanity String. */
+	static final int stageMatch      = 3;
+	/** Number of stages that are timed. */
+	static final int stageCount      = 4;
+	
+	/** The search being instrumented. */
+	private final IttyBittyBitcoinVanitySearch search;
+	/** The expected number of candidates that must be tested to find one match. */
+	private final double                       difficulty;
+	/** Total sampled nanoseconds spent in each stage. */
+	private final LongAdder[]                  stageNanos       = new LongAdder[stageCount];
+	/** Total number of candidates in the sampled batches. */
+	private final LongAdder                    sampledCandidates = new LongAdder();
+	/** The name this instance is registered under as an MBean, or null if it is not registered. */
+	private       ObjectName                   objectName;
+	
+	/** Create the instrumentation for the given search, which has the given difficulty. */
+	IttyBittyBitcoinVanityStats(IttyBittyBitcoinVanitySearch search, double difficulty) {
+		this.search     = search;
+		this.difficulty = difficulty;
+		for (int i = 0; i<stageCount; i++) {
+			stageNanos[i] = new LongAdder();
+		}
+	}
+	
+	/** Record one sampled batch of 'candidates' candidates, which spent the given number of nanoseconds in each stage. */
+	void recordSample(int candidates, long[] nanos) {
+		for (int i = 0; i<stageCount; i++) {
+			stageNanos[i].add(nanos[i]);
+		}
+		sampledCandidates.add(candidates);
+	}
+	
+	/** Returns the average sampled nanoseconds per candidate spent in the given stage. */
+	private double getStageNanosPerCandidate(int stage) {
+		long candidates = sampledCandidates.sum();
+		return candidates > 0 ? stageNanos[stage].sum() / (double)candidates : 0.0;
+	}
+	
+	/** Register this instance with the platform MBean server, under a name including the vanity String. Does nothing if it is already registered. */
+	public synchronized void registerMBean() {
+		if (objectName != null) {
+			return;
+		}
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("com.therealergo.ittybittybitcoin:type=VanitySearch,vanity=" + ObjectName.quote(getVanity()) + ",id=" + System.identityHashCode(search));
+			server.registerMBean(this, name);
+			objectName = name;
+		} catch (JMException e) {
+			throw new RuntimeException("Unable to register vanity search MBean!", e);
+		}
+	}
+	
+	/** Remove this instance from the platform MBean server, if it is registered. */
+	public synchronized void unregisterMBean() {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException e) {
+			throw new RuntimeException("Unable to unregister vanity search MBean!", e);
+		} finally {
+			objectName = null;
+		}
+	}
+	
+	@Override
+	public String getVanity() {
+		return search.getVanity();
+	}
+	
+	@Override
+	public int getThreadCount() {
+		return search.getThreadCount();
+	}
+	
+	@Override
+	public boolean isDone() {
+		return search.isDone();
+	}
+	
+	@Override
+	public long getCandidatesTried() {
+		return search.getCandidatesTried();
+	}
+	
+	@Override
+	public double getKeysPerSecond() {
+		return search.getKeysPerSecond();
+	}
+	
+	@Override
+	public double getElapsedSeconds() {
+		return search.getElapsedSeconds();
+	}
+	
+	@Override
+	public double getDifficulty() {
+		return difficulty;
+	}
+	
+	@Override
+	public double getProbabilityFound() {
+		// Every candidate independently matches with probability 1 / difficulty, which is certain for patterns every address matches
+		long tried = getCandidatesTried();
+		if (tried == 0) {
+			return 0.0;
+		}
+		if (difficulty <= 1.0) {
+			return 1.0;
+		}
+		return -Math.expm1(tried * Math.log1p(-1.0 / difficulty));
+	}
+	
+	@Override
+	public double getEstimatedSecondsRemaining() {
+		// The search is memoryless, so the candidates already tested bring a match no closer and the expected wait is always the whole difficulty
+		double keysPerSecond = getKeysPerSecond();
+		if (keysPerSecond <= 0.0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return difficulty / keysPerSecond;
+	}
+	
+	@Override
+	public double getEstimatedSecondsToProbability(double probability) {
+		double keysPerSecond = getKeysPerSecond();
+		if (probability <= 0.0) {
+			return 0.0;
+		}
+		if (probability >= 1.0 || keysPerSecond <= 0.0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double candidates = difficulty <= 1.0 ? 1.0 : Math.log1p(-probability) / Math.log1p(-1.0 / difficulty);
+		return candidates / keysPerSecond;
+	}
+	
+	@Override
+	public double getEcMultiplyNanosPerCandidate() {
+		return getStageNanosPerCandidate(stageEcMultiply);
+	}
+	
+	@Override
+	public double getSha256NanosPerCandidate() {
+		return getStageNanosPerCandidate(stageSha256);
+	}
+	
+	@Override
+	public double getRipemd160NanosPerCandidate() {
+		return getStageNanosPerCandidate(stageRipemd160);
+	}
+	
+	@Override
+	public double getMatchNanosPerCandidate() {
+		return getStageNanosPerCandidate(stageMatch);
+	}
+}
@@ -0,0 +1,68 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+/** JMX management interface exposing the live progress and per-stage timings of a running vanity search. */
+public interface IttyBittyBitcoinVanityStatsMBean {
+	/** Returns the vanity String being searched for. */
+	public String getVanity();
+	
+	/** Returns the number of worker threads used by the search. */
+	public int getThreadCount();
+	
+	/** Returns whether the search has found an address or been cancelled. */
+	public boolean isDone();
+	
+	/** Returns the total number of candidate private keys tested so far. */
+	public long getCandidatesTried();
+	
+	/** Returns the average number of candidate private keys tested per second. */
+	public double getKeysPerSecond();
+	
+	/** Returns the number of seconds the search has been running for. */
+	public double getElapsedSeconds();
+	
+	/** Returns the expected number of candidates that must be tested to find one match. */
+	public double getDifficulty();
+	
+	/** Returns the probability that a search testing this many candidates would have found a match by now. */
+	public double getProbabilityFound();
+	
+	/** Returns the expected number of seconds until the search finds a match, at the current rate. Since every candidate is equally likely to match, this does not shrink as the search goes on. */
+	public double getEstimatedSecondsRemaining();
+	
+	/** Returns the number of seconds, at the current rate, after which the search will have found a match with the given probability between 0 and 1, counting only candidates not yet tested. */
+	public double getEstimatedSecondsToProbability(double probability);
+	
+	/** Returns the average nanoseconds per candidate spent generating and encoding public points. */
+	public double getEcMultiplyNanosPerCandidate();
+	
+	/** Returns the average nanoseconds per candidate spent SHA-256 hashing public points. */
+	public double getSha256NanosPerCandidate();
+	
+	/** Returns the average nanoseconds per candidate spent RIPEMD-160 hashing public points. */
+	public double getRipemd160NanosPerCandidate();
+	
+	/** Returns the average nanoseconds per candidate spent matching public keys against the vanity String. */
+	public double getMatchNanosPerCandidate();
+}
@@ -0,0 +1,343 @@
+//	MIT License
+//
+//	Copyright (c) 2018 Kienan Ahner-McHaffie (therealergo.com)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a copy
+//	of this software and associated documentation files (the "Software"), to deal
+//	in the Software without restriction, including without limitation the rights
+//	to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+//	copies of the Software, and to permit persons to whom the Software is
+//	furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in all
+//	copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+//	OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+//	SOFTWARE.
+
+package com.therealergo.ittybittybitcoin;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/** Set of public keys (RIPEMD-160 hashes) to watch for, held in a memory-mapped file rather than on the heap. The keys are stored in an open-addressing hash table of 20-byte slots with linear probing, optionally preceded by a Bloom filter that rejects most absent keys with a few bit lookups. Since public keys are already uniformly distributed, their own bits are used as hash values. Queries read the mapped file directly and allocate nothing, so they can be made from the innermost derivation loops. Instances are immutable once built or loaded, and may be shared between threads. */
+public class IttyBittyBitcoinWatchList {
+	/** Interface used to receive the derived keys found on a watch list by the key generator and vanity searches. */
+	public static interface MatchListener {
+		/** Called with the private key of a derived key that is on the watch list, and whether the matching address is in compressed form. Vanity searches call this from their worker threads, so it must be thread-safe. */
+		public void matched(byte[] privateKey, boolean compressed);
+	}
+	
+	/** Magic number at the start of every watch list file, the ASCII characters 'IBBW'. */
+	private static final int  magic          = 0x49424257;
+	/** Version number of the watch list file format. */
+	private static final int  fileVersion    = 1;
+	/** Number of bytes in a watch list file's header: magic number, version, slot count, entry count, Bloom filter size, Bloom filter hash count, and flags. */
+	private static final int  headerSize     = 40;
+	/** Number of bytes in each slot of the hash table, which holds one public key. */
+	private static final int  slotSize       = 20;
+	/** Number of hash table slots mapped into memory per segment, keeping every segment below the 2 GiB limit of a single mapping. */
+	private static final long segmentSlots   = 1L << 26;
+	/** Number of Bloom filter bytes mapped into memory per segment. */
+	private static final long segmentBytes   = 1L << 30;
+	/** Header flag set when the all-zero public key is in the list, since an all-zero slot marks an empty slot. */
+	private static final int  flagZeroKey    = 1;
+	
+	/** The number of slots in the hash table, always a power of two. */
+	private final long                slotCount;
+	/** The number of distinct public keys in the list. */
+	private final long                entryCount;
+	/** The number of bits in the Bloom filter, always a power of two, or 0 if there is no Bloom filter. */
+	private final long                bloomBits;
+	/** The number of bits set in the Bloom filter for each public key. */
+	private final int                 bloomHashes;
+	/** Whether the all-zero public key is in the list. */
+	private final boolean             containsZeroKey;
+	/** The mapped segments of the Bloom filter, each holding 'segmentBytes' bytes. */
+	private final MappedByteBuffer[]  bloomSegments;
+	/** The mapped segments of the hash table, each holding 'segmentSlots' slots. */
+	private final MappedByteBuffer[]  tableSegments;
+	
+	/** Map the watch list in the given open file, whose header has already been read. */
+	private IttyBittyBitcoinWatchList(FileChannel channel, FileChannel.MapMode mode, long slotCount, long entryCount, long bloomBits, int bloomHashes, boolean containsZeroKey) throws IOException {
+		this.slotCount       = slotCount;
+		this.entryCount      = entryCount;
+		this.bloomBits       = bloomBits;
+		this.bloomHashes     = bloomHashes;
+		this.containsZeroKey = containsZeroKey;
+		
+		// Map the Bloom filter and the hash table after it, each split into segments small enough for one mapping
+		long bloomSize = bloomBits / 8;
+		bloomSegments = new MappedByteBuffer[(int)((bloomSize + segmentBytes - 1) / segmentBytes)];
+		for (int i = 0; i<bloomSegments.length; i++) {
+			long start = i * segmentBytes;
+			bloomSegments[i] = channel.map(mode, headerSize + start, Math.min(segmentBytes, bloomSize - start));
+		}
+		tableSegments = new MappedByteBuffer[(int)((slotCount + segmentSlots - 1) / segmentSlots)];
+		for (int i = 0; i<tableSegments.length; i++) {
+			long start = i * segmentSlots;
+			tableSegments[i] = channel.map(mode, headerSize + bloomSize + start * slotSize, Math.min(segmentSlots, slotCount - start) * slotSize);
+		}
+	}
+	
+	/** Build a watch list from 'input,' a text file holding one base-58 address or 40-character hexadecimal public key per line, and save it to 'output.' Blank lines, duplicate keys, and valid addresses of types other than pay-to-public-key-hash are skipped. If 'bloomBitsPerKey' is more than 0, a Bloom filter of about that many bits per key is placed in front of the hash table, with around 10 bits per key rejecting 99% of absent keys. Returns the built watch list, mapped from 'output.' */
+	public static IttyBittyBitcoinWatchList build(IttyBittyBitcoin ibb, Path input, Path output, int bloomBitsPerKey) throws IOException {
+		if (bloomBitsPerKey < 0 || bloomBitsPerKey > 64) {
+			throw new RuntimeException("Watch list Bloom filter size must be between 0 and 64 bits per key.");
+		}
+		
+		// Count the lines first, so that the table can be sized to stay at most half full
+		long lineCount = 0;
+		try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII)) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				if (!line.trim().isEmpty()) {
+					lineCount++;
+				}
+			}
+		}
+		long slotCount   = nextPowerOfTwo(Math.max(2 * lineCount, 16));
+		long bloomBits   = bloomBitsPerKey == 0 ? 0 : nextPowerOfTwo(Math.max(lineCount * bloomBitsPerKey, 64));
+		int  bloomHashes = bloomBitsPerKey == 0 ? 0 : (int)Math.max(1, Math.min(16, Math.round((double)bloomBits / Math.max(lineCount, 1) * Math.log(2))));
+		
+		// Create the zero-filled file, so that every slot starts out empty
+		try (RandomAccessFile file = new RandomAccessFile(output.toFile(), "rw")) {
+			file.setLength(0);
+			file.setLength(headerSize + bloomBits / 8 + slotCount * slotSize);
+		}
+		try (FileChannel channel = FileChannel.open(output, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			IttyBittyBitcoinWatchList building = new IttyBittyBitcoinWatchList(channel, FileChannel.MapMode.READ_WRITE, slotCount, 0, bloomBits, bloomHashes, false);
+			
+			// Insert every public key, skipping any already in the table
+			long entryCount = 0;
+			boolean containsZeroKey = false;
+			byte[] publicKey = new byte[slotSize];
+			long lineNumber = 0;
+			try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII)) {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					lineNumber++;
+					line = line.trim();
+					if (line.isEmpty()) {
+						continue;
+					}
+					try {
+						if (!decodeEntry(ibb, line, publicKey)) {
+							continue;
+						}
+					} catch (RuntimeException e) {
+						throw new RuntimeException("Invalid address on line " + lineNumber + " of watch list file!", e);
+					}
+					if (isZero(publicKey)) {
+						containsZeroKey = true;
+						continue;
+					}
+					if (building.insert(publicKey)) {
+						entryCount++;
+					}
+				}
+			}
+			
+			// Write the header last, so that an interrupted build never looks like a valid watch list
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize);
+			header.putInt(magic);
+			header.putInt(fileVersion);
+			header.putLong(slotCount);
+			header.putLong(entryCount + (containsZeroKey ? 1 : 0));
+			header.putLong(bloomBits);
+			header.putInt(bloomHashes);
+			header.putInt(containsZeroKey ? flagZeroKey : 0);
+			for (MappedByteBuffer segment : building.bloomSegments) {
+				segment.force();
+			}
+			for (MappedByteBuffer segment : building.tableSegments) {
+				segment.force();
+			}
+			header.force();
+		}
+		return load(output);
+	}
+	
+	/** Load a watch list previously written by build(...), mapping the file into memory rather than reading it. */
+	public static IttyBittyBitcoinWatchList load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// Check the header before trusting the size of the rest of the file
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(headerSize, channel.size()));
+			if (header.remaining() < headerSize || header.getInt() != magic || header.getInt() != fileVersion) {
+				throw new RuntimeException("File is not an IttyBittyBitcoin watch list: " + path);
+			}
+			long slotCount   = header.getLong();
+			long entryCount  = header.getLong();
+			long bloomBits   = header.getLong();
+			int  bloomHashes = header.getInt();
+			int  flags       = header.getInt();
+			if (Long.bitCount(slotCount) != 1 || (bloomBits != 0 && (Long.bitCount(bloomBits) != 1 || bloomBits < 64 || bloomHashes < 1)) ||
+				channel.size() != headerSize + bloomBits / 8 + slotCount * slotSize) {
+				throw new RuntimeException("Watch list file is truncated or corrupt: " + path);
+			}
+			return new IttyBittyBitcoinWatchList(channel, FileChannel.MapMode.READ_ONLY, slotCount, entryCount, bloomBits, bloomHashes, (flags & flagZeroKey) != 0);
+		}
+	}
+	
+	/** Decode one line of a watch list input file, either a base-58 address or a hexadecimal public key, into 'publicKey.' Returns false if the line is a valid address that is not a pay-to-public-key-hash address, and so cannot match any derived key. */
+	private static boolean decodeEntry(IttyBittyBitcoin ibb, String line, byte[] publicKey) {
+		// A 40-character line of only hexadecimal digits is a public key, since base-58 addresses are never that short
+		if (line.length() == 2 * slotSize) {
+			boolean hex = true;
+			for (int i = 0; i<slotSize && hex; i++) {
+				int high = Character.digit(line.charAt(2*i    ), 16);
+				int low  = Character.digit(line.charAt(2*i + 1), 16);
+				hex = high >= 0 && low >= 0;
+				publicKey[i] = (byte)((high << 4) | low);
+			}
+			if (hex) {
+				return true;
+			}
+		}
+		
+		// Otherwise the line must be a 25-byte address: version byte, public key, and checksum
+		byte[] address = ibb.decodeBase58(line);
+		if (address.length != 25 || !Arrays.equals(Arrays.copyOfRange(address, 21, 25), ibb.checksum(Arrays.copyOfRange(address, 0, 21)))) {
+			throw new RuntimeException("Invalid address or public key: '" + line + "'.");
+		}
+		if (address[0] != 0) {
+			return false;
+		}
+		System.arraycopy(address, 1, publicKey, 0, slotSize);
+		return true;
+	}
+	
+	/** Returns the smallest power of two that is at least 'value.' */
+	private static long nextPowerOfTwo(long value) {
+		return Long.highestOneBit(value - 1) << 1;
+	}
+	
+	/** Returns whether every byte of the given public key is 0x00. */
+	private static boolean isZero(byte[] publicKey) {
+		for (int i = 0; i<publicKey.length; i++) {
+			if (publicKey[i] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/** Insert the given nonzero public key into the table and Bloom filter while building. Returns false if it was already present. */
+	private boolean insert(byte[] publicKey) {
+		long high   = IttyBittyBitcoinBytes.readLong(publicKey,  0);
+		long middle = IttyBittyBitcoinBytes.readLong(publicKey,  8);
+		int  low    = IttyBittyBitcoinBytes.readInt (publicKey, 16);
+		
+		// Walk from the key's home slot to either the key itself or the first empty slot
+		for (long slot = high & (slotCount - 1); ; slot = (slot + 1) & (slotCount - 1)) {
+			MappedByteBuffer segment = tableSegments[(int)(slot / segmentSlots)];
+			int position = (int)(slot % segmentSlots) * slotSize;
+			long slotHigh   = segment.getLong(position     );
+			long slotMiddle = segment.getLong(position +  8);
+			int  slotLow    = segment.getInt (position + 16);
+			if (slotHigh == high && slotMiddle == middle && slotLow == low) {
+				return false;
+			}
+			if (slotHigh == 0 && slotMiddle == 0 && slotLow == 0) {
+				segment.putLong(position     , high  );
+				segment.putLong(position +  8, middle);
+				segment.putInt (position + 16, low   );
+				break;
+			}
+		}
+		
+		// Set the key's bits in the Bloom filter
+		for (int i = 0; i<bloomHashes; i++) {
+			long bit = bloomBit(high, middle, low, i);
+			MappedByteBuffer segment = bloomSegments[(int)((bit >>> 3) / segmentBytes)];
+			int position = (int)((bit >>> 3) % segmentBytes);
+			segment.put(position, (byte)(segment.get(position) | (1 << (bit & 7))));
+		}
+		return true;
+	}
+	
+	/** Returns the index of the i-th Bloom filter bit for the given public key, derived from its middle and lower bits by double hashing, so that it is independent of the key's hash table slot. */
+	private long bloomBit(long high, long middle, int low, int i) {
+		long step = (((long)low << 32) | (high >>> 32)) | 1L;
+		return (middle + i * step) & (bloomBits - 1);
+	}
+	
+	/** Test whether the 20-byte public key at 'offset' in 'publicKey' might be in this list, using only the Bloom filter. False means that it is definitely not in the list. Always returns true if there is no Bloom filter. */
+	public boolean mightContain(byte[] publicKey, int offset) {
+		long high   = IttyBittyBitcoinBytes.readLong(publicKey, offset     );
+		long middle = IttyBittyBitcoinBytes.readLong(publicKey, offset +  8);
+		int  low    = IttyBittyBitcoinBytes.readInt (publicKey, offset + 16);
+		return mightContain(high, middle, low);
+	}
+	
+	/** Test the given public key, split into upper 64, middle 64, and lower 32 bits, against the Bloom filter. */
+	private boolean mightContain(long high, long middle, int low) {
+		for (int i = 0; i<bloomHashes; i++) {
+			long bit = bloomBit(high, middle, low, i);
+			if ((bloomSegments[(int)((bit >>> 3) / segmentBytes)].get((int)((bit >>> 3) % segmentBytes)) & (1 << (bit & 7))) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/** Test whether the 20-byte public key at 'offset' in 'publicKey' is in this list. */
+	public boolean contains(byte[] publicKey, int offset) {
+		long high   = IttyBittyBitcoinBytes.readLong(publicKey, offset     );
+		long middle = IttyBittyBitcoinBytes.readLong(publicKey, offset +  8);
+		int  low    = IttyBittyBitcoinBytes.readInt (publicKey, offset + 16);
+		if (high == 0 && middle == 0 && low == 0) {
+			return containsZeroKey;
+		}
+		if (!mightContain(high, middle, low)) {
+			return false;
+		}
+		
+		// Walk from the key's home slot until either the key itself or an empty slot is found
+		for (long slot = high & (slotCount - 1); ; slot = (slot + 1) & (slotCount - 1)) {
+			MappedByteBuffer segment = tableSegments[(int)(slot / segmentSlots)];
+			int position = (int)(slot % segmentSlots) * slotSize;
+			long slotHigh   = segment.getLong(position     );
+			long slotMiddle = segment.getLong(position +  8);
+			int  slotLow    = segment.getInt (position + 16);
+			if (slotHigh == high && slotMiddle == middle && slotLow == low) {
+				return true;
+			}
+			if (slotHigh == 0 && slotMiddle == 0 && slotLow == 0) {
+				return false;
+			}
+		}
+	}
+	
+	/** Test whether the given base-58 address or hexadecimal public key is in this list. Unlike contains(...), this allocates, and is intended for one-off lookups. */
+	public boolean containsAddress(IttyBittyBitcoin ibb, String addressBase58) {
+		byte[] publicKey = new byte[slotSize];
+		return decodeEntry(ibb, addressBase58, publicKey) && contains(publicKey, 0);
+	}
+	
+	/** Returns the number of distinct public keys in this list. */
+	public long getEntryCount() {
+		return entryCount;
+	}
+	
+	/** Returns the number of slots in the hash table, which is at least twice the number of public keys. */
+	public long getSlotCount() {
+		return slotCount;
+	}
+	
+	/** Returns the number of bits in the Bloom filter, or 0 if this list has no Bloom filter. */
+	public long getBloomBits() {
+		return bloomBits;
+	}
+}